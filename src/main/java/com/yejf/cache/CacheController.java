@@ -19,4 +19,10 @@ public class CacheController {
 
         return cacheService.getSomeStr(name);
     }
+
+    @RequestMapping("/updateHi")
+    public String updateSomeStr(@RequestParam String name, @RequestParam String value){
+
+        return cacheService.updateSomeStr(name, value);
+    }
 }
@@ -1,5 +1,6 @@
 package com.yejf.cache;
 
+import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
@@ -9,9 +10,15 @@ import org.springframework.stereotype.Service;
 @Service
 public class CacheService {
 
-    @Cacheable("address")
+    // sync：未命中时的计算走 Caffeine 的 compute，配置了存储时计算结果不会写回存储
+    @Cacheable(value = "address", sync = true)
     public String getSomeStr(String name){
         System.out.println("invoke getSomeStr...");
         return "hi "+name;
     }
+
+    @CachePut(value = "address", key = "#name")
+    public String updateSomeStr(String name, String value){
+        return value;
+    }
 }
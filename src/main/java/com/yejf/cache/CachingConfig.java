@@ -1,5 +1,12 @@
 package com.yejf.cache;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.yejf.cache.store.ReadThroughCacheLoader;
+import com.yejf.cache.store.ReadThroughCaffeineCache;
+import com.yejf.cache.store.WriteBehindCacheWriter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
@@ -7,6 +14,8 @@ import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.Collections;
+
 /**
  * Created by tony on 2019/3/14.
  */
@@ -15,9 +24,39 @@ import org.springframework.context.annotation.Configuration;
 @Configuration
 public class CachingConfig {
     @Bean
-    public CacheManager cacheManager(){
+    public CacheManager cacheManager(@Value("${cache.sharded.shards:0}") int shards,
+                                     @Value("${cache.sharded.maximum-size:100000}") long maximumSize,
+                                     @Value("${cache.store.maximum-size:10000}") long storeMaximumSize,
+                                     ObjectProvider<WriteBehindCacheWriter> writer, ObjectProvider<ReadThroughCacheLoader> loader){
+        ReadThroughCacheLoader cacheLoader = loader.getIfAvailable();
+        if (shards > 0) {
+            // 写多时按 key 分片，减少线程在同一个 Caffeine 缓存上的争用；
+            // 配置了存储时缓存只留热数据，大小上限用 cache.store.maximum-size，不管 cache.sharded.maximum-size
+            ShardedCacheManager sharded = new ShardedCacheManager(shards,
+                    cacheLoader == null ? maximumSize : storeMaximumSize, "address");
+            writer.ifAvailable(sharded::setCacheWriter);
+            if (cacheLoader != null) {
+                sharded.setCacheLoader(cacheLoader);
+            }
+            return sharded;
+        }
 //        ConcurrentMapCacheManager address = new ConcurrentMapCacheManager("address");
-        CaffeineCacheManager address = new CaffeineCacheManager("address");
+        if (cacheLoader == null) {
+            return new CaffeineCacheManager("address");
+        }
+        // 配置了 cache.store.file 时读穿透、写回存储，见 CacheStoreConfiguration；
+        // 缓存只留热数据，大小有上限
+        CaffeineCacheManager address = new CaffeineCacheManager() {
+            @Override
+            protected Cache createCaffeineCache(String name) {
+                return new ReadThroughCaffeineCache(name, createNativeCaffeineCache(name), isAllowNullValues());
+            }
+        };
+        Caffeine<Object, Object> caffeine = Caffeine.newBuilder().maximumSize(storeMaximumSize);
+        writer.ifAvailable(caffeine::writer);
+        address.setCaffeine(caffeine);
+        address.setCacheLoader(cacheLoader);
+        address.setCacheNames(Collections.singleton("address"));
         return address;
     }
 }
@@ -0,0 +1,133 @@
+package com.yejf.cache;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.yejf.cache.store.ReadThroughCaffeineCache;
+import org.springframework.cache.Cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * 按 key 的 hash 分到若干个独立 Caffeine 缓存上的 {@link Cache}。
+ * <p>
+ * 每个分片有自己的读写缓冲、淘汰和统计，写多的时候线程不再争同一组缓冲。
+ * 分片数是 2 的幂，用 hash 的高位选分片，低位留给分片内部的哈希表。
+ * 分片是 {@link ReadThroughCaffeineCache}，有 CacheLoader 时同样先读穿透再计算。
+ */
+public class ShardedCache implements Cache {
+    private final String name;
+    private final ReadThroughCaffeineCache[] shards;
+    private final int shift;
+
+    public ShardedCache(String name, List<com.github.benmanes.caffeine.cache.Cache<Object, Object>> shards, boolean allowNullValues) {
+        int count = shards.size();
+        if (count < 1 || Integer.bitCount(count) != 1) {
+            throw new IllegalArgumentException("shard count must be a power of two: " + count);
+        }
+        this.name = name;
+        this.shards = new ReadThroughCaffeineCache[count];
+        for (int i = 0; i < count; i++) {
+            this.shards[i] = new ReadThroughCaffeineCache(name, shards.get(i), allowNullValues);
+        }
+        this.shift = Integer.SIZE - Integer.numberOfTrailingZeros(count);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 各分片的 Caffeine 缓存
+     */
+    @Override
+    public List<com.github.benmanes.caffeine.cache.Cache<Object, Object>> getNativeCache() {
+        List<com.github.benmanes.caffeine.cache.Cache<Object, Object>> caches = new ArrayList<>(shards.length);
+        for (ReadThroughCaffeineCache shard : shards) {
+            caches.add(shard.getNativeCache());
+        }
+        return Collections.unmodifiableList(caches);
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        return shard(key).get(key);
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        return shard(key).get(key, type);
+    }
+
+    @Override
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        return shard(key).get(key, valueLoader);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        shard(key).put(key, value);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        return shard(key).putIfAbsent(key, value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        shard(key).evict(key);
+    }
+
+    @Override
+    public void clear() {
+        for (ReadThroughCaffeineCache shard : shards) {
+            shard.clear();
+        }
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * 每个分片的统计，分片创建时要打开 recordStats
+     */
+    public List<CacheStats> getShardStats() {
+        List<CacheStats> stats = new ArrayList<>(shards.length);
+        for (ReadThroughCaffeineCache shard : shards) {
+            stats.add(shard.getNativeCache().stats());
+        }
+        return stats;
+    }
+
+    public CacheStats getStats() {
+        CacheStats total = CacheStats.empty();
+        for (CacheStats stats : getShardStats()) {
+            total = total.plus(stats);
+        }
+        return total;
+    }
+
+    /**
+     * 各分片 estimatedSize 之和
+     */
+    public long estimatedSize() {
+        long size = 0;
+        for (ReadThroughCaffeineCache shard : shards) {
+            size += shard.getNativeCache().estimatedSize();
+        }
+        return size;
+    }
+
+    int shardOf(Object key) {
+        // shift 为 32（只有一个分片）时 Java 的移位不生效，单独处理
+        return shards.length == 1 ? 0 : (key.hashCode() * 0x9E3779B9) >>> shift;
+    }
+
+    private ReadThroughCaffeineCache shard(Object key) {
+        return shards[shardOf(key)];
+    }
+}
@@ -0,0 +1,106 @@
+package com.yejf.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.CacheWriter;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 创建 {@link ShardedCache} 的 {@link CacheManager}，用法同 CaffeineCacheManager。
+ * <p>
+ * 每个缓存的 maximumSize 平分给各分片，分片各自淘汰，所以总大小上限是近似的：
+ * key 分布不均时，热的分片会在总数到达上限之前开始淘汰。
+ * 给了缓存名就只有这些缓存，否则按需创建。
+ */
+public class ShardedCacheManager implements CacheManager {
+    private final ConcurrentMap<String, Cache> caches = new ConcurrentHashMap<>(16);
+    private final int shards;
+    private final long maximumSize;
+    private final boolean dynamic;
+
+    private CacheLoader<Object, Object> cacheLoader;
+    private CacheWriter<Object, Object> cacheWriter;
+
+    /**
+     * @param shards 分片数，向上取到 2 的幂
+     * @param maximumSize 每个缓存所有分片加起来的大小上限
+     */
+    public ShardedCacheManager(int shards, long maximumSize, String... cacheNames) {
+        if (shards < 1 || shards > 1 << 16) {
+            throw new IllegalArgumentException("shards must be in [1, 65536]: " + shards);
+        }
+        this.shards = shards == 1 ? 1 : Integer.highestOneBit(shards - 1) << 1;
+        this.maximumSize = maximumSize;
+        this.dynamic = cacheNames.length == 0;
+        for (String name : cacheNames) {
+            caches.put(name, createCache(name));
+        }
+    }
+
+    /**
+     * 各分片共用的读穿透 loader，已经创建的缓存会重建
+     */
+    public void setCacheLoader(CacheLoader<Object, Object> cacheLoader) {
+        this.cacheLoader = cacheLoader;
+        refreshKnownCaches();
+    }
+
+    /**
+     * 各分片共用的 writer，已经创建的缓存会重建
+     */
+    public void setCacheWriter(CacheWriter<Object, Object> cacheWriter) {
+        this.cacheWriter = cacheWriter;
+        refreshKnownCaches();
+    }
+
+    public int getShards() {
+        return shards;
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        Cache cache = caches.get(name);
+        if (cache == null && dynamic) {
+            cache = caches.computeIfAbsent(name, this::createCache);
+        }
+        return cache;
+    }
+
+    protected ShardedCache createCache(String name) {
+        long perShard = Math.max(1, (maximumSize + shards - 1) / shards);
+        List<com.github.benmanes.caffeine.cache.Cache<Object, Object>> natives = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            Caffeine<Object, Object> builder = Caffeine.newBuilder().maximumSize(perShard).recordStats();
+            if (cacheWriter != null) {
+                builder.writer(cacheWriter);
+            }
+            natives.add(cacheLoader != null ? builder.build(cacheLoader) : builder.build());
+        }
+        return new ShardedCache(name, natives, true);
+    }
+
+    @Override
+    public String toString() {
+        return "ShardedCacheManager{shards=" + shards + ", maximumSize=" + maximumSize + ", caches=" + Arrays.toString(caches.keySet().toArray()) + "}";
+    }
+
+    private void refreshKnownCaches() {
+        for (String name : caches.keySet()) {
+            caches.put(name, createCache(name));
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.yejf.cache.store;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * cache.store.file 指定时，@Cacheable 缓存读穿透到 {@link FileDataStore}，写入异步批量刷回去。
+ * 换成别的存储只要提供一个 {@link DataStore} bean。
+ */
+@Configuration
+@ConditionalOnProperty("cache.store.file")
+public class CacheStoreConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public FileDataStore dataStore(@Value("${cache.store.file}") String file) throws IOException {
+        return new FileDataStore(Paths.get(file));
+    }
+
+    @Bean(destroyMethod = "close")
+    public WriteBehindCacheWriter writeBehindCacheWriter(DataStore dataStore,
+                                                         @Value("${cache.store.batch-size:100}") int batchSize,
+                                                         @Value("${cache.store.flush-interval-ms:1000}") long flushIntervalMillis,
+                                                         @Value("${cache.store.max-pending:10000}") int maxPending,
+                                                         @Value("${cache.store.write-timeout-ms:200}") long writeTimeoutMillis) {
+        return new WriteBehindCacheWriter(dataStore, batchSize, flushIntervalMillis, maxPending, writeTimeoutMillis);
+    }
+
+    @Bean(destroyMethod = "close")
+    public ReadThroughCacheLoader readThroughCacheLoader(DataStore dataStore, WriteBehindCacheWriter writeBehindCacheWriter,
+                                                         @Value("${cache.store.max-load-batch:100}") int maxBatch,
+                                                         @Value("${cache.store.load-timeout-ms:1000}") long loadTimeoutMillis) {
+        return new ReadThroughCacheLoader(dataStore, writeBehindCacheWriter, maxBatch, loadTimeoutMillis);
+    }
+}
@@ -0,0 +1,21 @@
+package com.yejf.cache.store;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 缓存背后的慢存储，只提供批量读写，单个 key 的读写也走批量接口
+ */
+public interface DataStore {
+
+    /**
+     * 返回存在的 key -> value，不存在的 key 不出现在结果里
+     */
+    Map<String, String> loadAll(Collection<String> keys) throws IOException;
+
+    /**
+     * 一批写入，返回时已持久化
+     */
+    void writeAll(Map<String, String> entries) throws IOException;
+}
@@ -0,0 +1,120 @@
+package com.yejf.cache.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 本地文件上的 {@link DataStore}，作为测试和单机部署用的参考实现。
+ * <p>
+ * 文件是只追加的记录日志，每条记录 [key 长度 int][value 长度 int][key][value]（UTF-8），
+ * 内存里只保留 key -> value 在文件中的位置。打开时重放日志，末尾写了一半的记录截掉。
+ * 每批写入一次 write + 一次 force。旧值不回收。
+ */
+public class FileDataStore implements DataStore, Closeable {
+    private static final int HEADER = 2 * Integer.BYTES;
+
+    private final FileChannel channel;
+    /** key -> {value 偏移, value 长度} */
+    private final Map<String, long[]> index = new HashMap<>();
+    private long size;
+
+    public FileDataStore(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        replay();
+    }
+
+    @Override
+    public synchronized Map<String, String> loadAll(Collection<String> keys) throws IOException {
+        Map<String, String> values = new HashMap<>();
+        for (String key : keys) {
+            long[] location = index.get(key);
+            if (location != null) {
+                ByteBuffer value = ByteBuffer.allocate((int) location[1]);
+                readFully(value, location[0]);
+                values.put(key, new String(value.array(), StandardCharsets.UTF_8));
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public synchronized void writeAll(Map<String, String> entries) throws IOException {
+        if (entries.isEmpty()) {
+            return;
+        }
+        Map<String, byte[][]> encoded = new HashMap<>();
+        int bytes = 0;
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            byte[][] record = {entry.getKey().getBytes(StandardCharsets.UTF_8), entry.getValue().getBytes(StandardCharsets.UTF_8)};
+            encoded.put(entry.getKey(), record);
+            bytes += HEADER + record[0].length + record[1].length;
+        }
+        ByteBuffer batch = ByteBuffer.allocate(bytes);
+        Map<String, long[]> locations = new HashMap<>();
+        for (Map.Entry<String, byte[][]> entry : encoded.entrySet()) {
+            byte[][] record = entry.getValue();
+            batch.putInt(record[0].length).putInt(record[1].length).put(record[0]);
+            locations.put(entry.getKey(), new long[]{size + batch.position(), record[1].length});
+            batch.put(record[1]);
+        }
+        batch.flip();
+        long position = size;
+        while (batch.hasRemaining()) {
+            position += channel.write(batch, position);
+        }
+        channel.force(false);
+        // 写成功才更新索引，失败的批次对读不可见
+        index.putAll(locations);
+        size = position;
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private void replay() throws IOException {
+        long fileSize = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        long position = 0;
+        while (position + HEADER <= fileSize) {
+            header.clear();
+            readFully(header, position);
+            header.flip();
+            int keyLength = header.getInt();
+            int valueLength = header.getInt();
+            if (keyLength < 0 || valueLength < 0 || position + HEADER + keyLength + valueLength > fileSize) {
+                break;
+            }
+            ByteBuffer key = ByteBuffer.allocate(keyLength);
+            readFully(key, position + HEADER);
+            index.put(new String(key.array(), StandardCharsets.UTF_8), new long[]{position + HEADER + keyLength, valueLength});
+            position += HEADER + keyLength + valueLength;
+        }
+        if (position < fileSize) {
+            channel.truncate(position);
+        }
+        size = position;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("unexpected end of store at " + (position + buffer.position()));
+            }
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.yejf.cache.store;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 缓存未命中时从 {@link DataStore} 读，存储里没有返回 null（缓存照常回落到方法调用）。
+ * <p>
+ * 单个 key 的加载交给一个后台线程：它每次把排队的请求一起取走（最多 maxBatch 个），
+ * 合成一次 {@link DataStore#loadAll}。空闲时没有额外等待，存储越慢、并发越高，批次越大。
+ * 写后读先看 {@link WriteBehindCacheWriter} 里还没写出的值。
+ * <p>
+ * Caffeine 加载时持有该 key 的锁，单次加载最多等 loadTimeoutMillis，超时抛 {@link TimeoutException}，
+ * 存储卡住时请求线程不会一直挂着。
+ */
+public class ReadThroughCacheLoader implements CacheLoader<Object, Object>, Closeable {
+    private final DataStore store;
+    private final WriteBehindCacheWriter writer;
+    private final int maxBatch;
+    private final long loadTimeoutMillis;
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final Thread loader;
+    private volatile boolean closed;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong loaded = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+
+    /**
+     * @param writer 可以为 null
+     */
+    public ReadThroughCacheLoader(DataStore store, WriteBehindCacheWriter writer, int maxBatch, long loadTimeoutMillis) {
+        this.store = store;
+        this.writer = writer;
+        this.maxBatch = maxBatch;
+        this.loadTimeoutMillis = loadTimeoutMillis;
+        this.loader = new Thread(this::run, "cache-read-through");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    @Override
+    public Object load(Object key) throws Exception {
+        String name = key.toString();
+        String value = writer == null ? null : writer.getPending(name);
+        if (value != null) {
+            return value;
+        }
+        Request request = new Request(name);
+        queue.add(request);
+        if (closed) {
+            request.future.completeExceptionally(new IllegalStateException("read-through loader is closed"));
+        }
+        try {
+            return request.future.get(loadTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timeouts.incrementAndGet();
+            // 还在队列里就不用再查了
+            queue.remove(request);
+            throw new TimeoutException("loading " + name + " from store took more than " + loadTimeoutMillis + " ms");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    @Override
+    public Map<Object, Object> loadAll(Iterable<?> keys) throws Exception {
+        Map<String, Object> names = new HashMap<>();
+        Map<Object, Object> values = new HashMap<>();
+        for (Object key : keys) {
+            String name = key.toString();
+            String value = writer == null ? null : writer.getPending(name);
+            if (value != null) {
+                values.put(key, value);
+            } else {
+                names.put(name, key);
+            }
+        }
+        if (!names.isEmpty()) {
+            for (Map.Entry<String, String> entry : fetch(names.keySet()).entrySet()) {
+                values.put(names.get(entry.getKey()), entry.getValue());
+            }
+        }
+        return values;
+    }
+
+    public long getBatches() {
+        return batches.get();
+    }
+
+    public long getLoaded() {
+        return loaded.get();
+    }
+
+    /**
+     * 等待超时的单 key 加载次数
+     */
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+    /**
+     * 排队等待加载的请求数
+     */
+    public int getQueued() {
+        return queue.size();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        loader.interrupt();
+        try {
+            loader.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<Request> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        for (Request request : rest) {
+            request.future.completeExceptionally(new IllegalStateException("read-through loader is closed"));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ReadThroughCacheLoader{batches=" + batches + ", loaded=" + loaded + ", timeouts=" + timeouts + ", queued=" + getQueued() + "}";
+    }
+
+    private Map<String, String> fetch(Set<String> names) throws IOException {
+        Map<String, String> values = store.loadAll(names);
+        batches.incrementAndGet();
+        loaded.addAndGet(names.size());
+        return values;
+    }
+
+    private void run() {
+        List<Request> batch = new ArrayList<>(maxBatch);
+        while (!closed) {
+            try {
+                Request first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, maxBatch - 1);
+            Set<String> names = new LinkedHashSet<>();
+            for (Request request : batch) {
+                names.add(request.name);
+            }
+            try {
+                Map<String, String> values = fetch(names);
+                for (Request request : batch) {
+                    request.future.complete(values.get(request.name));
+                }
+            } catch (IOException | RuntimeException e) {
+                for (Request request : batch) {
+                    request.future.completeExceptionally(e);
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    private static final class Request {
+        private final String name;
+        private final CompletableFuture<String> future = new CompletableFuture<>();
+
+        Request(String name) {
+            this.name = name;
+        }
+    }
+}
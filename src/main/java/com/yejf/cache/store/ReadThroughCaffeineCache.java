@@ -0,0 +1,34 @@
+package com.yejf.cache.store;
+
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import java.util.concurrent.Callable;
+
+/**
+ * 配合 {@code @Cacheable(sync = true)} 使用的 {@link CaffeineCache}：未命中时先读穿透到存储，
+ * 存储里也没有才调用方法。
+ * <p>
+ * 方法算出来的值经 Caffeine 的 compute 放进缓存，Caffeine 不会把计算结果交给 CacheWriter，
+ * 所以只有 put（{@code @CachePut}）会写回存储，兜底的计算结果不落盘。
+ */
+public class ReadThroughCaffeineCache extends CaffeineCache {
+
+    public ReadThroughCaffeineCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache,
+                                    boolean allowNullValues) {
+        super(name, cache, allowNullValues);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        if (getNativeCache() instanceof LoadingCache) {
+            // get(key) 走 CacheLoader，存储里没有返回 null 且不缓存
+            ValueWrapper stored = get(key);
+            if (stored != null) {
+                return (T) stored.get();
+            }
+        }
+        return super.get(key, valueLoader);
+    }
+}
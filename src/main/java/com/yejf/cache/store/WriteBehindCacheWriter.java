@@ -0,0 +1,307 @@
+package com.yejf.cache.store;
+
+import com.github.benmanes.caffeine.cache.CacheWriter;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 把缓存写入异步刷到 {@link DataStore}。
+ * <ul>
+ * <li>写入先进缓冲区，同一个 key 还没刷出去时只保留最新值</li>
+ * <li>缓冲区攒够 batchSize 个 key，或者距上次刷出超过 flushIntervalMillis，由后台线程按批写出</li>
+ * <li>缓冲区（含正在写出的批次）达到 maxPending 个 key 时，写新 key 的调用方阻塞，直到刷出腾出位置；
+ * 最多等 writeTimeoutMillis，超时抛 {@link IllegalStateException} 并计数。
+ * Caffeine 在持有该 key 的锁时调用 writer，存储挂掉时不能让请求线程无限期等下去；
+ * writer 抛异常时 Caffeine 不更新缓存，调用方（如 {@code @CachePut}）直接看到失败，缓存和存储不会不一致</li>
+ * <li>写出失败的批次放回缓冲区（不覆盖更新的值），隔一个 flushIntervalMillis 再试</li>
+ * </ul>
+ * 只能写出 String 值，其他类型的值抛 {@link IllegalArgumentException}；缓存删除和淘汰不影响存储。
+ */
+public class WriteBehindCacheWriter implements CacheWriter<Object, Object>, Closeable {
+    private static final Logger log = LoggerFactory.getLogger(WriteBehindCacheWriter.class);
+
+    private final DataStore store;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final int maxPending;
+    private final long writeTimeoutNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition ready = lock.newCondition();
+    private LinkedHashMap<String, String> pending = new LinkedHashMap<>();
+    private Map<String, String> flushing = Collections.emptyMap();
+    private volatile boolean closed;
+    /** 保证批次按顺序写出 */
+    private final Object flushMonitor = new Object();
+    private final Thread flusher;
+
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong blocked = new AtomicLong();
+    private final AtomicLong flushed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public WriteBehindCacheWriter(DataStore store, int batchSize, long flushIntervalMillis, int maxPending, long writeTimeoutMillis) {
+        if (batchSize < 1 || maxPending < batchSize) {
+            throw new IllegalArgumentException("need 1 <= batchSize <= maxPending: " + batchSize + ", " + maxPending);
+        }
+        this.store = store;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.maxPending = maxPending;
+        this.writeTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(writeTimeoutMillis);
+        this.flusher = new Thread(this::run, "cache-write-behind");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @Override
+    public void write(Object key, Object value) {
+        if (!(value instanceof String)) {
+            throw new IllegalArgumentException("only String values can be written to the store, got "
+                    + (value == null ? null : value.getClass().getName()) + " for " + key);
+        }
+        String name = key.toString();
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("write-behind writer is closed");
+            }
+            if (!pending.containsKey(name) && pending.size() + flushing.size() >= maxPending) {
+                blocked.incrementAndGet();
+                long remaining = writeTimeoutNanos;
+                do {
+                    if (remaining <= 0) {
+                        rejected.incrementAndGet();
+                        throw new IllegalStateException("write-behind queue full for "
+                                + TimeUnit.NANOSECONDS.toMillis(writeTimeoutNanos) + " ms, rejecting write of " + name);
+                    }
+                    remaining = notFull.awaitNanos(remaining);
+                } while (!closed && !pending.containsKey(name) && pending.size() + flushing.size() >= maxPending);
+                if (closed) {
+                    throw new IllegalStateException("write-behind writer is closed");
+                }
+            }
+            if (pending.put(name, (String) value) != null) {
+                coalesced.incrementAndGet();
+            }
+            writes.incrementAndGet();
+            if (pending.size() >= batchSize) {
+                ready.signal();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for write-behind queue", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void delete(Object key, Object value, RemovalCause cause) {
+        // 缓存失效不等于数据删除
+    }
+
+    /**
+     * 还没写到存储的值，读穿透时优先用它，避免读到旧值
+     */
+    public String getPending(String key) {
+        lock.lock();
+        try {
+            String value = pending.get(key);
+            return value != null ? value : flushing.get(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 同步写出当前缓冲区，失败时返回 false，数据留在缓冲区
+     */
+    public boolean flush() {
+        synchronized (flushMonitor) {
+            Map<String, String> batch;
+            lock.lock();
+            try {
+                if (pending.isEmpty()) {
+                    return true;
+                }
+                batch = pending;
+                flushing = batch;
+                pending = new LinkedHashMap<>();
+            } finally {
+                lock.unlock();
+            }
+            List<Map<String, String>> chunks = split(batch);
+            int written = 0;
+            try {
+                for (Map<String, String> chunk : chunks) {
+                    store.writeAll(chunk);
+                    written++;
+                    batches.incrementAndGet();
+                    flushed.addAndGet(chunk.size());
+                }
+                return true;
+            } catch (IOException | RuntimeException e) {
+                failures.incrementAndGet();
+                log.warn("write-behind flush of {} entries failed, will retry", batch.size() - written * batchSize, e);
+                lock.lock();
+                try {
+                    for (Map<String, String> chunk : chunks.subList(written, chunks.size())) {
+                        for (Map.Entry<String, String> entry : chunk.entrySet()) {
+                            pending.putIfAbsent(entry.getKey(), entry.getValue());
+                        }
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                return false;
+            } finally {
+                lock.lock();
+                try {
+                    flushing = Collections.emptyMap();
+                    notFull.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    public int getPendingCount() {
+        lock.lock();
+        try {
+            return pending.size() + flushing.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getWrites() {
+        return writes.get();
+    }
+
+    /**
+     * 覆盖了缓冲区里同 key 旧值的写入次数
+     */
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    /**
+     * 因缓冲区满而等待的写入次数
+     */
+    public long getBlocked() {
+        return blocked.get();
+    }
+
+    public long getFlushed() {
+        return flushed.get();
+    }
+
+    public long getBatches() {
+        return batches.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    /**
+     * 缓冲区满、等待超时而拒绝的写入次数
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * 停止后台线程并写出剩余数据
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            ready.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!flush()) {
+            log.error("write-behind closed with {} entries not written", getPendingCount());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "WriteBehindCacheWriter{pending=" + getPendingCount() + ", writes=" + writes + ", coalesced=" + coalesced
+                + ", blocked=" + blocked + ", flushed=" + flushed + ", batches=" + batches + ", failures=" + failures + ", rejected=" + rejected + "}";
+    }
+
+    private void run() {
+        while (!closed) {
+            lock.lock();
+            try {
+                long remaining = flushIntervalNanos;
+                while (!closed && pending.size() < batchSize && remaining > 0) {
+                    remaining = ready.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            if (!closed && !flush()) {
+                // 存储出错时不要空转，等一个周期再试
+                lock.lock();
+                try {
+                    long remaining = flushIntervalNanos;
+                    while (!closed && remaining > 0) {
+                        remaining = ready.awaitNanos(remaining);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    private List<Map<String, String>> split(Map<String, String> batch) {
+        List<Map<String, String>> chunks = new ArrayList<>();
+        Map<String, String> chunk = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : batch.entrySet()) {
+            chunk.put(entry.getKey(), entry.getValue());
+            if (chunk.size() == batchSize) {
+                chunks.add(chunk);
+                chunk = new LinkedHashMap<>();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+}
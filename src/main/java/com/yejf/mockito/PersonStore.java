@@ -0,0 +1,297 @@
+package com.yejf.mockito;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 列式、堆外的 {@link Person} 存储。
+ * <p>
+ * 名字以 UTF-8 写入固定大小的 direct slab，记录按 int id 寻址，
+ * 每条记录只占两列：address（slab 下标 + 偏移，long）和 length（int）。
+ * 对象头和 String 的开销都不在堆上，适合千万级记录。
+ * <p>
+ * {@link #setName(int, String)} 的新名字不比旧名字长时原地覆盖，否则追加到 slab 末尾并改指针，旧字节成为垃圾。
+ * 要新开 slab 而垃圾已经超过写入字节的一半时先 {@link #compact()}，所以反复改名不会让堆外内存无限增长。
+ * 用完 {@link #close()} 释放所有 direct buffer。
+ * 非线程安全。
+ */
+public class PersonStore implements AutoCloseable {
+    private static final int DEFAULT_SLAB_BITS = 24;
+    private static final int NULL_NAME = -1;
+    private static final ByteBuffer CLOSED = ByteBuffer.allocateDirect(0);
+
+    private final int slabBits;
+    private final int slabSize;
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+
+    private ByteBuffer addresses;
+    private ByteBuffer lengths;
+    private int size;
+    private long tail;
+    /** 当前各记录名字字节数之和，tail - liveBytes 是覆盖和 slab 末尾留空造成的垃圾 */
+    private long liveBytes;
+
+    public PersonStore() {
+        this(1024, DEFAULT_SLAB_BITS);
+    }
+
+    public PersonStore(int initialCapacity) {
+        this(initialCapacity, DEFAULT_SLAB_BITS);
+    }
+
+    PersonStore(int initialCapacity, int slabBits) {
+        if (initialCapacity < 1) {
+            throw new IllegalArgumentException("initialCapacity must be positive: " + initialCapacity);
+        }
+        this.slabBits = slabBits;
+        this.slabSize = 1 << slabBits;
+        this.addresses = ByteBuffer.allocateDirect(initialCapacity * Long.BYTES);
+        this.lengths = ByteBuffer.allocateDirect(initialCapacity * Integer.BYTES);
+    }
+
+    /**
+     * 追加一条记录，返回它的 id
+     */
+    public int add(String name) {
+        ensureCapacity(size + 1);
+        int id = size++;
+        lengths.putInt(id * Integer.BYTES, NULL_NAME);
+        write(id, name);
+        return id;
+    }
+
+    public int add(Person person) {
+        return add(person.getName());
+    }
+
+    public String getName(int id) {
+        checkId(id);
+        int length = lengths.getInt(id * Integer.BYTES);
+        if (length == NULL_NAME) {
+            return null;
+        }
+        long address = addresses.getLong(id * Long.BYTES);
+        ByteBuffer slab = slabs.get((int) (address >>> slabBits)).duplicate();
+        slab.position((int) (address & (slabSize - 1)));
+        byte[] bytes = new byte[length];
+        slab.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public void setName(int id, String name) {
+        checkId(id);
+        write(id, name);
+    }
+
+    /**
+     * 名字的 UTF-8 字节数，null 名字返回 -1；只读 length 列，不解码
+     */
+    public int nameLength(int id) {
+        checkId(id);
+        return lengths.getInt(id * Integer.BYTES);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 已分配的堆外字节数（两列 + 全部 slab）
+     */
+    public long offHeapBytes() {
+        return addresses.capacity() + lengths.capacity() + (long) slabs.size() * slabSize;
+    }
+
+    /**
+     * slab 里已经用掉的字节数（含被 setName 换掉的旧字节和 slab 末尾的空隙），{@link #compact()} 后等于 {@link #liveNameBytes()}
+     */
+    public long nameBytes() {
+        return tail;
+    }
+
+    /**
+     * 当前所有名字的 UTF-8 字节数之和
+     */
+    public long liveNameBytes() {
+        return liveBytes;
+    }
+
+    /**
+     * 按 id 顺序把名字拷到新的 slab 里，旧 slab 不再引用，由 GC 回收
+     */
+    public void compact() {
+        List<ByteBuffer> old = new ArrayList<>(slabs);
+        slabs.clear();
+        tail = 0;
+        for (int id = 0; id < size; id++) {
+            int length = lengths.getInt(id * Integer.BYTES);
+            if (length == NULL_NAME) {
+                continue;
+            }
+            long from = addresses.getLong(id * Long.BYTES);
+            ByteBuffer source = old.get((int) (from >>> slabBits)).duplicate();
+            int offset = (int) (from & (slabSize - 1));
+            source.limit(offset + length).position(offset);
+            long to = allocate(length);
+            ByteBuffer target = slabs.get((int) (to >>> slabBits)).duplicate();
+            target.position((int) (to & (slabSize - 1)));
+            target.put(source);
+            addresses.putLong(id * Long.BYTES, to);
+        }
+    }
+
+    /**
+     * 释放全部堆外内存，之后不能再使用
+     */
+    @Override
+    public void close() {
+        slabs.clear();
+        addresses = CLOSED;
+        lengths = CLOSED;
+        size = 0;
+        tail = 0;
+        liveBytes = 0;
+    }
+
+    /**
+     * 返回指向 id 的 flyweight，读写都直接落到存储上
+     */
+    public View view(int id) {
+        checkId(id);
+        View view = new View();
+        view.id = id;
+        return view;
+    }
+
+    /**
+     * 用同一个 flyweight 依次访问 [from, to) 范围内的记录，action 不应持有它
+     */
+    public void forEach(int from, int to, Consumer<? super Person> action) {
+        checkRange(from, to);
+        View view = new View();
+        for (int id = from; id < to; id++) {
+            view.id = id;
+            action.accept(view);
+        }
+    }
+
+    /**
+     * 对 [from, to) 范围内的每条记录调用 {@link MockitoTestI#doSomething(Person)}
+     */
+    public void doSomething(int from, int to, MockitoTestI target) {
+        forEach(from, to, target::doSomething);
+    }
+
+    private void write(int id, String name) {
+        int oldLength = lengths.getInt(id * Integer.BYTES);
+        if (name == null) {
+            lengths.putInt(id * Integer.BYTES, NULL_NAME);
+            liveBytes -= Math.max(oldLength, 0);
+            return;
+        }
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > slabSize) {
+            throw new IllegalArgumentException("name of " + bytes.length + " bytes exceeds slab size " + slabSize);
+        }
+        long address;
+        if (bytes.length <= oldLength) {
+            // 原地覆盖，多出来的旧字节算垃圾
+            address = addresses.getLong(id * Long.BYTES);
+        } else {
+            if (needsNewSlab(bytes.length) && (tail - liveBytes) * 2 > tail) {
+                compact();
+            }
+            address = allocate(bytes.length);
+        }
+        liveBytes += bytes.length - Math.max(oldLength, 0);
+        ByteBuffer slab = slabs.get((int) (address >>> slabBits)).duplicate();
+        slab.position((int) (address & (slabSize - 1)));
+        slab.put(bytes);
+        addresses.putLong(id * Long.BYTES, address);
+        lengths.putInt(id * Integer.BYTES, bytes.length);
+    }
+
+    private boolean needsNewSlab(int length) {
+        long next = (tail & (slabSize - 1)) + length > slabSize ? ((tail >>> slabBits) + 1) << slabBits : tail;
+        return (int) (next >>> slabBits) >= slabs.size();
+    }
+
+    private long allocate(int length) {
+        int offset = (int) (tail & (slabSize - 1));
+        if (offset + length > slabSize) {
+            // 名字不跨 slab，放不下就跳到下一个 slab 开头
+            tail = ((tail >>> slabBits) + 1) << slabBits;
+        }
+        while (slabs.size() <= (int) (tail >>> slabBits)) {
+            slabs.add(ByteBuffer.allocateDirect(slabSize));
+        }
+        long address = tail;
+        tail += length;
+        return address;
+    }
+
+    private void ensureCapacity(int capacity) {
+        int current = lengths.capacity() / Integer.BYTES;
+        if (capacity <= current) {
+            return;
+        }
+        if (addresses == CLOSED) {
+            throw new IllegalStateException("PersonStore is closed");
+        }
+        int grown = (int) Math.min(Integer.MAX_VALUE / Long.BYTES, Math.max(capacity, (long) current * 2));
+        if (grown < capacity) {
+            throw new IllegalStateException("PersonStore is full: " + size);
+        }
+        addresses = grow(addresses, grown * Long.BYTES);
+        lengths = grow(lengths, grown * Integer.BYTES);
+    }
+
+    private static ByteBuffer grow(ByteBuffer column, int bytes) {
+        ByteBuffer grown = ByteBuffer.allocateDirect(bytes);
+        ByteBuffer src = column.duplicate();
+        src.clear();
+        grown.put(src);
+        grown.clear();
+        return grown;
+    }
+
+    private void checkId(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("id: " + id + ", size: " + size);
+        }
+    }
+
+    private void checkRange(int from, int to) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("range: [" + from + ", " + to + "), size: " + size);
+        }
+    }
+
+    /**
+     * 指向存储中某条记录的 Person，本身不保存名字
+     */
+    public class View extends Person {
+        private int id;
+
+        private View() {
+            super(null);
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        @Override
+        public String getName() {
+            return PersonStore.this.getName(id);
+        }
+
+        @Override
+        public void setName(String name) {
+            PersonStore.this.setName(id, name);
+        }
+    }
+}
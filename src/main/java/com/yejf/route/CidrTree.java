@@ -0,0 +1,58 @@
+package com.yejf.route;
+
+/**
+ * 按位展开的二叉 radix 树，IPv4 和 IPv6 各用一棵。
+ * 查询沿地址的位往下走，途经的每个前缀节点的规则都算命中。
+ */
+class CidrTree {
+    private final int words;
+    private final Node root = new Node();
+
+    CidrTree(int words) {
+        this.words = words;
+    }
+
+    void add(byte[] address, int prefixLength, int rule) {
+        if (prefixLength < 0 || prefixLength > address.length * 8) {
+            throw new IllegalArgumentException("bad prefix length: " + prefixLength);
+        }
+        Node node = root;
+        for (int bit = 0; bit < prefixLength; bit++) {
+            if (bit(address, bit) == 0) {
+                if (node.zero == null) {
+                    node.zero = new Node();
+                }
+                node = node.zero;
+            } else {
+                if (node.one == null) {
+                    node.one = new Node();
+                }
+                node = node.one;
+            }
+        }
+        node.rules = RuleMask.set(node.rules, words, rule);
+    }
+
+    long[] match(byte[] address, long[] mask) {
+        Node node = root;
+        int bits = address.length * 8;
+        for (int bit = 0; node != null; bit++) {
+            mask = RuleMask.or(mask, node.rules);
+            if (bit == bits) {
+                break;
+            }
+            node = bit(address, bit) == 0 ? node.zero : node.one;
+        }
+        return mask;
+    }
+
+    private static int bit(byte[] address, int bit) {
+        return (address[bit >>> 3] >>> (7 - (bit & 7))) & 1;
+    }
+
+    private static final class Node {
+        private Node zero;
+        private Node one;
+        private long[] rules;
+    }
+}
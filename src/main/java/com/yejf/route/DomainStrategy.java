@@ -0,0 +1,31 @@
+package com.yejf.route;
+
+/**
+ * 对应 config.json 里 routing.domainStrategy
+ */
+public enum DomainStrategy {
+    /**
+     * 只用域名匹配域名规则，不解析
+     */
+    AsIs,
+    /**
+     * 域名规则都不匹配时，解析成 IP 再匹配一遍
+     */
+    IPIfNonMatch,
+    /**
+     * 遇到 IP 规则就先解析，域名和 IP 一起参与匹配
+     */
+    IPOnDemand;
+
+    public static DomainStrategy of(String name) {
+        if (name == null || name.isEmpty()) {
+            return AsIs;
+        }
+        for (DomainStrategy strategy : values()) {
+            if (strategy.name().equalsIgnoreCase(name)) {
+                return strategy;
+            }
+        }
+        throw new IllegalArgumentException("unknown domainStrategy: " + name);
+    }
+}
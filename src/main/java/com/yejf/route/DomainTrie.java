@@ -0,0 +1,91 @@
+package com.yejf.route;
+
+import java.util.Arrays;
+
+/**
+ * 倒序域名 trie：从域名最后一个字符往前走，只在 label 边界上认定命中，
+ * 所以 domain:pixiv.net 命中 www.pixiv.net 和 pixiv.net，不命中 xpixiv.net。
+ * 查询不分配对象（除了命中时的结果位图）。
+ */
+class DomainTrie {
+    private final int words;
+    private final Node root = new Node();
+
+    DomainTrie(int words) {
+        this.words = words;
+    }
+
+    /**
+     * @param full true 表示 full: 完整匹配，false 表示 domain: 子域名匹配
+     */
+    void add(String domain, boolean full, int rule) {
+        Node node = root;
+        for (int i = domain.length() - 1; i >= 0; i--) {
+            node = node.childOrCreate(lower(domain.charAt(i)));
+        }
+        if (full) {
+            node.fullRules = RuleMask.set(node.fullRules, words, rule);
+        } else {
+            node.suffixRules = RuleMask.set(node.suffixRules, words, rule);
+        }
+    }
+
+    /**
+     * 把命中规则并入 mask 并返回，host 已去掉末尾的点
+     */
+    long[] match(String host, long[] mask) {
+        Node node = root;
+        for (int i = host.length() - 1; i >= 0; i--) {
+            node = node.child(lower(host.charAt(i)));
+            if (node == null) {
+                return mask;
+            }
+            if (i == 0) {
+                mask = RuleMask.or(mask, node.suffixRules);
+                mask = RuleMask.or(mask, node.fullRules);
+            } else if (host.charAt(i - 1) == '.') {
+                mask = RuleMask.or(mask, node.suffixRules);
+            }
+        }
+        return mask;
+    }
+
+    private static char lower(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    private static final class Node {
+        private static final char[] NO_KEYS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        private char[] keys = NO_KEYS;
+        private Node[] children = NO_CHILDREN;
+        private long[] suffixRules;
+        private long[] fullRules;
+
+        Node child(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            return i < 0 ? null : children[i];
+        }
+
+        Node childOrCreate(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            if (i >= 0) {
+                return children[i];
+            }
+            int at = -i - 1;
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, at);
+            System.arraycopy(children, 0, newChildren, 0, at);
+            System.arraycopy(keys, at, newKeys, at + 1, keys.length - at);
+            System.arraycopy(children, at, newChildren, at + 1, children.length - at);
+            Node node = new Node();
+            newKeys[at] = c;
+            newChildren[at] = node;
+            keys = newKeys;
+            children = newChildren;
+            return node;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.yejf.route;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 路由时把域名解析成 IP，用于 IPIfNonMatch / IPOnDemand
+ */
+public interface HostResolver {
+
+    HostResolver SYSTEM = InetAddress::getAllByName;
+
+    InetAddress[] resolve(String host) throws UnknownHostException;
+
+    /**
+     * 异步解析，解析失败时返回空数组。默认实现在调用线程上同步解析
+     */
+    default CompletableFuture<InetAddress[]> resolveAsync(String host) {
+        try {
+            return CompletableFuture.completedFuture(resolve(host));
+        } catch (UnknownHostException e) {
+            return CompletableFuture.completedFuture(new InetAddress[0]);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.yejf.route;
+
+/**
+ * config.json 中的一个 inbound
+ */
+public class InboundConfig {
+    private final String tag;
+    private final String protocol;
+    private final String listen;
+    private final int port;
+    private final boolean udp;
+
+    public InboundConfig(String tag, String protocol, String listen, int port, boolean udp) {
+        this.tag = tag;
+        this.protocol = protocol;
+        this.listen = listen;
+        this.port = port;
+        this.udp = udp;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    public String getProtocol() {
+        return protocol;
+    }
+
+    public String getListen() {
+        return listen;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public boolean isUdp() {
+        return udp;
+    }
+}
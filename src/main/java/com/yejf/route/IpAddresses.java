@@ -0,0 +1,69 @@
+package com.yejf.route;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * IP 字面量解析，不会触发 DNS
+ */
+public final class IpAddresses {
+
+    private IpAddresses() {
+    }
+
+    /**
+     * 解析 IPv4/IPv6 字面量，IPv4-mapped 的 IPv6 地址返回 4 字节；不是字面量返回 null
+     */
+    public static byte[] parse(String host) {
+        if (host.isEmpty()) {
+            return null;
+        }
+        byte[] v4 = parseV4(host);
+        if (v4 != null) {
+            return v4;
+        }
+        return host.indexOf(':') >= 0 ? parseV6(host) : null;
+    }
+
+    private static byte[] parseV4(String host) {
+        byte[] address = new byte[4];
+        int part = 0;
+        int value = -1;
+        for (int i = 0; i < host.length(); i++) {
+            char c = host.charAt(i);
+            if (c >= '0' && c <= '9') {
+                value = value < 0 ? c - '0' : value * 10 + (c - '0');
+                if (value > 255) {
+                    return null;
+                }
+            } else if (c == '.' && value >= 0 && part < 3) {
+                address[part++] = (byte) value;
+                value = -1;
+            } else {
+                return null;
+            }
+        }
+        if (part != 3 || value < 0) {
+            return null;
+        }
+        address[3] = (byte) value;
+        return address;
+    }
+
+    private static byte[] parseV6(String host) {
+        String literal = host.startsWith("[") && host.endsWith("]") ? host.substring(1, host.length() - 1) : host;
+        for (int i = 0; i < literal.length(); i++) {
+            char c = literal.charAt(i);
+            boolean hex = c >= '0' && c <= '9' || c >= 'a' && c <= 'f' || c >= 'A' && c <= 'F';
+            if (!hex && c != ':' && c != '.') {
+                return null;
+            }
+        }
+        try {
+            // 带方括号时 getByName 只按 IPv6 字面量解析，不查 DNS
+            return InetAddress.getByName("[" + literal + "]").getAddress();
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+}
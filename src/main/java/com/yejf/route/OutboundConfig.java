@@ -0,0 +1,34 @@
+package com.yejf.route;
+
+/**
+ * config.json 中的一个 outbound，只保留本地处理需要的字段
+ */
+public class OutboundConfig {
+    public static final String FREEDOM = "freedom";
+    public static final String BLACKHOLE = "blackhole";
+
+    private final String tag;
+    private final String protocol;
+    private final String responseType;
+
+    public OutboundConfig(String tag, String protocol, String responseType) {
+        this.tag = tag;
+        this.protocol = protocol;
+        this.responseType = responseType;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    public String getProtocol() {
+        return protocol;
+    }
+
+    /**
+     * blackhole 的 settings.response.type，"http" 表示断开前先回一个 403
+     */
+    public String getResponseType() {
+        return responseType;
+    }
+}
@@ -0,0 +1,35 @@
+package com.yejf.route;
+
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.annotation.Resource;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 查询 host 会走哪个 outbound
+ */
+@RestController
+public class RouteController {
+    @Resource
+    private RouterHolder routerHolder;
+
+    /**
+     * 需要解析域名时不占着 Tomcat 线程等 DNS，解析完成后再写响应
+     */
+    @RequestMapping("/route")
+    public CompletableFuture<String> route(@RequestParam String host,
+                                           @RequestParam(defaultValue = "0") int port,
+                                           @RequestParam(required = false) String inbound) {
+        return routerHolder.get().routeAsync(host, port, inbound);
+    }
+
+    /**
+     * 当前生效的配置版本、规则数和加载耗时
+     */
+    @RequestMapping("/route/version")
+    public String version() {
+        return routerHolder.version().toString();
+    }
+}
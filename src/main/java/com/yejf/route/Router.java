@@ -0,0 +1,372 @@
+package com.yejf.route;
+
+import com.yejf.route.geo.GeoData;
+import com.yejf.route.geo.GeoIp;
+import com.yejf.route.geo.GeoSite;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Pattern;
+
+/**
+ * 编译好的路由表。
+ * <p>
+ * 所有规则的域名条件编进同一棵倒序域名 trie，IP 条件编进 IPv4/IPv6 两棵 radix 树，
+ * 查询时先得到命中规则的位图，再按配置顺序取第一条所有条件都满足的规则（first match）。
+ * geosite:/geoip: 条件查 {@link GeoData} 的映射文件。
+ * 编译后不可变，可以被多个线程同时查询。
+ */
+public class Router {
+    private final RoutingConfig config;
+    private final DomainStrategy domainStrategy;
+    private final HostResolver resolver;
+    private final String defaultOutbound;
+    private final CompiledRule[] rules;
+    private final boolean hasIpRules;
+    private final int words;
+
+    private final DomainTrie domains;
+    private final List<Keyword> keywords;
+    private final List<Regexp> regexps;
+    private final CidrTree v4;
+    private final CidrTree v6;
+    private final List<Tagged<GeoSite>> geoSites;
+    private final List<Tagged<GeoIp>> geoIps;
+    private final GeoData geo;
+    private final List<String> unresolvedTags;
+
+    private Router(RoutingConfig config, HostResolver resolver, GeoData geo) {
+        List<RoutingRule> source = config.getRules();
+        this.words = Math.max(1, (source.size() + 63) >>> 6);
+        this.config = config;
+        this.domainStrategy = config.getDomainStrategy();
+        this.resolver = resolver;
+        this.defaultOutbound = config.getOutboundTags().isEmpty() ? null : config.getOutboundTags().get(0);
+        this.rules = new CompiledRule[source.size()];
+        this.domains = new DomainTrie(words);
+        this.keywords = new ArrayList<>();
+        this.regexps = new ArrayList<>();
+        this.v4 = new CidrTree(words);
+        this.v6 = new CidrTree(words);
+        this.geoSites = new ArrayList<>();
+        this.geoIps = new ArrayList<>();
+        this.geo = geo;
+        this.unresolvedTags = new ArrayList<>();
+
+        boolean anyIp = false;
+        for (int i = 0; i < rules.length; i++) {
+            RoutingRule rule = source.get(i);
+            if (rule.getDomain() != null) {
+                for (String domain : rule.getDomain()) {
+                    addDomain(domain, i);
+                }
+            }
+            if (rule.getIp() != null) {
+                for (String ip : rule.getIp()) {
+                    addIp(ip, i);
+                }
+                anyIp = true;
+            }
+            rules[i] = new CompiledRule(rule);
+        }
+        this.hasIpRules = anyIp;
+    }
+
+    public static Router compile(RoutingConfig config, HostResolver resolver) {
+        return new Router(config, resolver, null);
+    }
+
+    /**
+     * @param geo geosite:/geoip: 的数据，可以为 null
+     */
+    public static Router compile(RoutingConfig config, HostResolver resolver, GeoData geo) {
+        return new Router(config, resolver, geo);
+    }
+
+    /**
+     * 返回 host 对应的 outboundTag，没有规则命中时返回第一个 outbound
+     */
+    public String route(String host) {
+        return route(host, 0, null);
+    }
+
+    /**
+     * @param port       目标端口，0 表示未知
+     * @param inboundTag 来源 inbound，可以为 null
+     */
+    public String route(String host, int port, String inboundTag) {
+        return outbound(match(host, port, inboundTag));
+    }
+
+    /**
+     * 返回命中规则在配置中的下标，没有命中返回 -1。需要解析域名时在调用线程上同步解析
+     */
+    public int match(String host, int port, String inboundTag) {
+        String name = normalize(host);
+        byte[] address = IpAddresses.parse(name);
+        if (address != null) {
+            return firstMatch(null, matchIp(address, null), port, inboundTag);
+        }
+        long[] domainMask = matchDomain(name);
+        int rule = firstMatch(domainMask, null, port, inboundTag);
+        if (!needsResolve(rule)) {
+            return rule;
+        }
+        InetAddress[] addresses;
+        try {
+            addresses = resolver.resolve(name);
+        } catch (UnknownHostException e) {
+            addresses = new InetAddress[0];
+        }
+        return firstMatch(domainMask, matchAddresses(addresses), port, inboundTag);
+    }
+
+    /**
+     * 同 {@link #route(String, int, String)}，需要解析时用 {@link HostResolver#resolveAsync(String)}，不阻塞调用线程。
+     * 不需要解析时返回的 future 已经完成
+     */
+    public CompletableFuture<String> routeAsync(String host, int port, String inboundTag) {
+        String name = normalize(host);
+        byte[] address = IpAddresses.parse(name);
+        if (address != null) {
+            return CompletableFuture.completedFuture(outbound(firstMatch(null, matchIp(address, null), port, inboundTag)));
+        }
+        long[] domainMask = matchDomain(name);
+        int rule = firstMatch(domainMask, null, port, inboundTag);
+        if (!needsResolve(rule)) {
+            return CompletableFuture.completedFuture(outbound(rule));
+        }
+        return resolver.resolveAsync(name)
+                .thenApply(addresses -> outbound(firstMatch(domainMask, matchAddresses(addresses), port, inboundTag)));
+    }
+
+    /**
+     * 编译这个 Router 用的配置，inbound/outbound 的细节从这里取
+     */
+    public RoutingConfig getConfig() {
+        return config;
+    }
+
+    public DomainStrategy getDomainStrategy() {
+        return domainStrategy;
+    }
+
+    public int getRuleCount() {
+        return rules.length;
+    }
+
+    /**
+     * 编译时没能展开的 geosite:/geoip:/ext: 等条件，这些条件不会命中
+     */
+    public List<String> getUnresolvedTags() {
+        return Collections.unmodifiableList(unresolvedTags);
+    }
+
+    private int firstMatch(long[] domainMask, long[] ipMask, int port, String inboundTag) {
+        for (int i = 0; i < rules.length; i++) {
+            CompiledRule rule = rules[i];
+            if (rule.domain && !RuleMask.get(domainMask, i)) {
+                continue;
+            }
+            if (rule.ip && !RuleMask.get(ipMask, i)) {
+                continue;
+            }
+            if (rule.inboundTags != null && (inboundTag == null || !rule.inboundTags.contains(inboundTag))) {
+                continue;
+            }
+            if (rule.ports != null && !rule.matchesPort(port)) {
+                continue;
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private long[] matchDomain(String name) {
+        long[] mask = domains.match(name, null);
+        for (Keyword keyword : keywords) {
+            if (name.contains(keyword.value)) {
+                mask = RuleMask.set(mask, words, keyword.rule);
+            }
+        }
+        for (Regexp regexp : regexps) {
+            if (regexp.pattern.matcher(name).find()) {
+                mask = RuleMask.set(mask, words, regexp.rule);
+            }
+        }
+        GeoSite.Query query = null;
+        for (Tagged<GeoSite> site : geoSites) {
+            if (!RuleMask.get(mask, site.rule)) {
+                if (query == null) {
+                    // 所有 geosite 共用一次反转编码
+                    query = new GeoSite.Query(name);
+                }
+                if (site.value.matches(query)) {
+                    mask = RuleMask.set(mask, words, site.rule);
+                }
+            }
+        }
+        return mask;
+    }
+
+    private long[] matchIp(byte[] address, long[] mask) {
+        mask = address.length == 4 ? v4.match(address, mask) : v6.match(address, mask);
+        for (Tagged<GeoIp> ip : geoIps) {
+            if (!RuleMask.get(mask, ip.rule) && ip.value.contains(address)) {
+                mask = RuleMask.set(mask, words, ip.rule);
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * 只用域名算出 rule 之后是否还要解析成 IP：IPOnDemand 总是要，IPIfNonMatch 在没有规则命中时才要
+     */
+    private boolean needsResolve(int rule) {
+        return hasIpRules && (domainStrategy == DomainStrategy.IPOnDemand
+                || domainStrategy == DomainStrategy.IPIfNonMatch && rule < 0);
+    }
+
+    private long[] matchAddresses(InetAddress[] addresses) {
+        long[] mask = null;
+        for (InetAddress address : addresses) {
+            mask = matchIp(address.getAddress(), mask);
+        }
+        return mask;
+    }
+
+    private String outbound(int rule) {
+        return rule < 0 ? defaultOutbound : rules[rule].outboundTag;
+    }
+
+    private void addDomain(String entry, int rule) {
+        String value = entry.toLowerCase();
+        GeoSite geoSite = value.startsWith("geosite:") && geo != null ? geo.site(value.substring("geosite:".length())) : null;
+        if (geoSite != null) {
+            geoSites.add(new Tagged<>(geoSite, rule));
+        } else if (value.startsWith("domain:")) {
+            domains.add(normalize(value.substring("domain:".length())), false, rule);
+        } else if (value.startsWith("full:")) {
+            domains.add(normalize(value.substring("full:".length())), true, rule);
+        } else if (value.startsWith("keyword:")) {
+            keywords.add(new Keyword(value.substring("keyword:".length()), rule));
+        } else if (entry.startsWith("regexp:")) {
+            regexps.add(new Regexp(Pattern.compile(entry.substring("regexp:".length())), rule));
+        } else if (value.startsWith("geosite:") || value.startsWith("ext:")) {
+            unresolvedTags.add(entry);
+        } else {
+            // 不带前缀的字符串按关键字匹配
+            keywords.add(new Keyword(value, rule));
+        }
+    }
+
+    private void addIp(String entry, int rule) {
+        GeoIp geoIp = entry.startsWith("geoip:") && geo != null ? geo.ip(entry.substring("geoip:".length())) : null;
+        if (geoIp != null) {
+            geoIps.add(new Tagged<>(geoIp, rule));
+            return;
+        }
+        if (entry.startsWith("geoip:") || entry.startsWith("ext:")) {
+            unresolvedTags.add(entry);
+            return;
+        }
+        int slash = entry.indexOf('/');
+        String literal = slash < 0 ? entry : entry.substring(0, slash);
+        byte[] address = IpAddresses.parse(literal);
+        if (address == null) {
+            throw new IllegalArgumentException("bad ip in rule " + rule + ": " + entry);
+        }
+        int prefix;
+        try {
+            prefix = slash < 0 ? address.length * 8 : Integer.parseInt(entry.substring(slash + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("bad ip in rule " + rule + ": " + entry);
+        }
+        (address.length == 4 ? v4 : v6).add(address, prefix, rule);
+    }
+
+    private static String normalize(String host) {
+        String name = host.trim().toLowerCase();
+        return name.endsWith(".") ? name.substring(0, name.length() - 1) : name;
+    }
+
+    private static final class CompiledRule {
+        private final String outboundTag;
+        private final boolean domain;
+        private final boolean ip;
+        private final Set<String> inboundTags;
+        private final int[] ports;
+
+        CompiledRule(RoutingRule rule) {
+            this.outboundTag = rule.getOutboundTag();
+            this.domain = rule.getDomain() != null;
+            this.ip = rule.getIp() != null;
+            this.inboundTags = rule.getInboundTag() == null ? null : new HashSet<>(rule.getInboundTag());
+            this.ports = rule.getPort() == null ? null : parsePorts(rule.getPort());
+        }
+
+        boolean matchesPort(int port) {
+            for (int i = 0; i < ports.length; i += 2) {
+                if (port >= ports[i] && port <= ports[i + 1]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * "53"、"1000-2000"、"53,443" 展开成 [from, to] 对
+         */
+        private static int[] parsePorts(String port) {
+            String[] parts = port.split(",");
+            int[] ranges = new int[parts.length * 2];
+            for (int i = 0; i < parts.length; i++) {
+                String part = parts[i].trim();
+                int dash = part.indexOf('-');
+                try {
+                    ranges[2 * i] = Integer.parseInt(dash < 0 ? part : part.substring(0, dash).trim());
+                    ranges[2 * i + 1] = dash < 0 ? ranges[2 * i] : Integer.parseInt(part.substring(dash + 1).trim());
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("bad port: " + port);
+                }
+            }
+            return ranges;
+        }
+    }
+
+    private static final class Keyword {
+        private final String value;
+        private final int rule;
+
+        Keyword(String value, int rule) {
+            this.value = value;
+            this.rule = rule;
+        }
+    }
+
+    private static final class Tagged<T> {
+        private final T value;
+        private final int rule;
+
+        Tagged(T value, int rule) {
+            this.value = value;
+            this.rule = rule;
+        }
+    }
+
+    private static final class Regexp {
+        private final Pattern pattern;
+        private final int rule;
+
+        Regexp(Pattern pattern, int rule) {
+            this.pattern = pattern;
+            this.rule = rule;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.yejf.route;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 持有当前生效的 {@link Router}。
+ * <p>
+ * Router 编译后不可变，重新加载时整体替换（copy-on-write），
+ * 查询方只读一次 volatile 引用，不加锁，也不会看到半新半旧的规则。
+ */
+public class RouterHolder {
+    private final AtomicReference<Version> current = new AtomicReference<>();
+
+    public RouterHolder(Router router, long loadMillis) {
+        current.set(new Version(1, router, loadMillis));
+    }
+
+    public Router get() {
+        return current.get().router;
+    }
+
+    public Version version() {
+        return current.get();
+    }
+
+    /**
+     * 原子地换上新的 Router，返回新版本
+     */
+    public Version swap(Router router, long loadMillis) {
+        Version previous;
+        Version next;
+        do {
+            previous = current.get();
+            next = new Version(previous.number + 1, router, loadMillis);
+        } while (!current.compareAndSet(previous, next));
+        return next;
+    }
+
+    public static final class Version {
+        private final int number;
+        private final Router router;
+        private final long loadMillis;
+
+        Version(int number, Router router, long loadMillis) {
+            this.number = number;
+            this.router = router;
+            this.loadMillis = loadMillis;
+        }
+
+        public int getNumber() {
+            return number;
+        }
+
+        public Router getRouter() {
+            return router;
+        }
+
+        /**
+         * 读取、校验和编译这一版配置花的时间
+         */
+        public long getLoadMillis() {
+            return loadMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "v" + number + ": " + router.getRuleCount() + " rules, loaded in " + loadMillis + " ms";
+        }
+    }
+}
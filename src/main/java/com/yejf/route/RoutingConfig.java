@@ -0,0 +1,144 @@
+package com.yejf.route;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * config.json 中与路由有关的部分：domainStrategy、rules、inbounds 和 outbounds
+ */
+public class RoutingConfig {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final DomainStrategy domainStrategy;
+    private final List<RoutingRule> rules;
+    private final List<String> outboundTags;
+    private final List<OutboundConfig> outbounds;
+    private final List<InboundConfig> inbounds;
+
+    public RoutingConfig(DomainStrategy domainStrategy, List<RoutingRule> rules,
+                         List<OutboundConfig> outbounds, List<InboundConfig> inbounds) {
+        this.domainStrategy = domainStrategy;
+        this.rules = Collections.unmodifiableList(rules);
+        this.outbounds = Collections.unmodifiableList(outbounds);
+        this.inbounds = Collections.unmodifiableList(inbounds);
+        List<String> tags = new ArrayList<>();
+        for (OutboundConfig outbound : outbounds) {
+            tags.add(outbound.getTag());
+        }
+        this.outboundTags = Collections.unmodifiableList(tags);
+    }
+
+    public static RoutingConfig parse(InputStream in) throws IOException {
+        JsonNode root = MAPPER.readTree(in);
+        if (root == null || !root.isObject()) {
+            throw new IOException("config is not a JSON object");
+        }
+        List<OutboundConfig> outbounds = new ArrayList<>();
+        for (JsonNode outbound : root.path("outbounds")) {
+            outbounds.add(new OutboundConfig(
+                    outbound.path("tag").asText(),
+                    outbound.path("protocol").asText(),
+                    text(outbound.path("settings").path("response").get("type"))));
+        }
+        List<InboundConfig> inbounds = new ArrayList<>();
+        for (JsonNode inbound : root.path("inbounds")) {
+            inbounds.add(new InboundConfig(
+                    inbound.path("tag").asText(),
+                    inbound.path("protocol").asText(),
+                    inbound.path("listen").asText("127.0.0.1"),
+                    inbound.path("port").asInt(),
+                    inbound.path("settings").path("udp").asBoolean()));
+        }
+        JsonNode routing = root.path("routing");
+        List<RoutingRule> rules = new ArrayList<>();
+        for (JsonNode rule : routing.path("rules")) {
+            rules.add(new RoutingRule(
+                    text(rule.get("outboundTag")),
+                    list(rule.get("domain")),
+                    list(rule.get("ip")),
+                    list(rule.get("inboundTag")),
+                    text(rule.get("port"))));
+        }
+        return new RoutingConfig(DomainStrategy.of(text(routing.get("domainStrategy"))), rules, outbounds, inbounds);
+    }
+
+    /**
+     * 检查编译前就能发现的问题，不合法时抛 {@link IllegalArgumentException}
+     */
+    public RoutingConfig validate() {
+        if (outboundTags.isEmpty()) {
+            throw new IllegalArgumentException("no outbounds");
+        }
+        for (int i = 0; i < rules.size(); i++) {
+            RoutingRule rule = rules.get(i);
+            if (rule.getOutboundTag() == null || rule.getOutboundTag().isEmpty()) {
+                throw new IllegalArgumentException("rule " + i + " has no outboundTag");
+            }
+            if (rule.getDomain() == null && rule.getIp() == null
+                    && rule.getInboundTag() == null && rule.getPort() == null) {
+                throw new IllegalArgumentException("rule " + i + " has no condition");
+            }
+        }
+        return this;
+    }
+
+    public DomainStrategy getDomainStrategy() {
+        return domainStrategy;
+    }
+
+    public List<RoutingRule> getRules() {
+        return rules;
+    }
+
+    /**
+     * 按配置顺序，第一个是没有规则命中时的默认出口
+     */
+    public List<String> getOutboundTags() {
+        return outboundTags;
+    }
+
+    public List<OutboundConfig> getOutbounds() {
+        return outbounds;
+    }
+
+    /**
+     * 按 tag 查找 outbound，没有返回 null
+     */
+    public OutboundConfig getOutbound(String tag) {
+        for (OutboundConfig outbound : outbounds) {
+            if (outbound.getTag().equals(tag)) {
+                return outbound;
+            }
+        }
+        return null;
+    }
+
+    public List<InboundConfig> getInbounds() {
+        return inbounds;
+    }
+
+    private static String text(JsonNode node) {
+        return node == null || node.isNull() ? null : node.asText();
+    }
+
+    private static List<String> list(JsonNode node) {
+        if (node == null || node.isNull()) {
+            return null;
+        }
+        List<String> values = new ArrayList<>();
+        if (node.isArray()) {
+            for (JsonNode value : node) {
+                values.add(value.asText());
+            }
+        } else {
+            values.add(node.asText());
+        }
+        return values;
+    }
+}
@@ -0,0 +1,117 @@
+package com.yejf.route;
+
+import com.yejf.route.geo.GeoData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 监听路由配置文件，变化后在后台线程重新解析、校验、编译，再原子地换进 {@link RouterHolder}。
+ * 新文件有问题时只打日志，旧版本继续生效。
+ */
+public class RoutingConfigWatcher implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(RoutingConfigWatcher.class);
+    private static final long SETTLE_MILLIS = 100;
+
+    private final Path file;
+    private final RouterHolder holder;
+    private final HostResolver resolver;
+    private final GeoData geo;
+    private final WatchService watchService;
+    private final Thread thread;
+    private final AtomicInteger failedReloads = new AtomicInteger();
+
+    /**
+     * @param geo geosite:/geoip: 的数据，可以为 null
+     */
+    public RoutingConfigWatcher(Path file, RouterHolder holder, HostResolver resolver, GeoData geo) throws IOException {
+        this.file = file.toAbsolutePath();
+        this.holder = holder;
+        this.resolver = resolver;
+        this.geo = geo;
+        this.watchService = this.file.getFileSystem().newWatchService();
+        this.file.getParent().register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        this.thread = new Thread(this::watch, "routing-config-watcher");
+        this.thread.setDaemon(true);
+    }
+
+    public RoutingConfigWatcher start() {
+        thread.start();
+        return this;
+    }
+
+    /**
+     * 读取并编译配置文件，成功则换上新版本；失败抛异常，当前版本不变
+     */
+    public RouterHolder.Version reload() throws IOException {
+        long start = System.nanoTime();
+        Router router;
+        try (InputStream in = Files.newInputStream(file)) {
+            router = Router.compile(RoutingConfig.parse(in).validate(), resolver, geo);
+        }
+        return holder.swap(router, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    public int getFailedReloads() {
+        return failedReloads.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() != StandardWatchEventKinds.OVERFLOW
+                            && file.getFileName().equals(event.context())) {
+                        changed = true;
+                    }
+                }
+                key.reset();
+                if (changed) {
+                    // 编辑器保存时往往连着几次写，等一下再把后续事件一起吞掉
+                    Thread.sleep(SETTLE_MILLIS);
+                    drain();
+                    reloadQuietly();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            log.debug("routing config watcher stopped");
+        }
+    }
+
+    private void drain() {
+        WatchKey key;
+        while ((key = watchService.poll()) != null) {
+            key.pollEvents();
+            key.reset();
+        }
+    }
+
+    private void reloadQuietly() {
+        try {
+            log.info("routing config {} reloaded, {}", file, reload());
+        } catch (IOException | RuntimeException e) {
+            failedReloads.incrementAndGet();
+            log.warn("routing config {} rejected, keeping {}: {}", file, holder.version(), e.toString());
+        }
+    }
+}
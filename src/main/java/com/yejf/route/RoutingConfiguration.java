@@ -0,0 +1,108 @@
+package com.yejf.route;
+
+import com.yejf.route.dns.AsyncDnsResolver;
+import com.yejf.route.dns.SystemDnsUpstream;
+import com.yejf.route.geo.GeoData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionMessage;
+import org.springframework.boot.autoconfigure.condition.ConditionOutcome;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.SpringBootCondition;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 启动时把 config.json 的路由规则编译成 {@link Router}；
+ * 配置在文件系统上时，文件变化后自动重新加载。
+ * routing.geo 指向 {@link com.yejf.route.geo.GeoDataCompiler} 生成的文件时，geosite:/geoip: 条件才会生效。
+ * 域名解析走带缓存的 {@link AsyncDnsResolver}
+ */
+@Configuration
+public class RoutingConfiguration {
+    private static final Logger log = LoggerFactory.getLogger(RoutingConfiguration.class);
+
+    private static final String DEFAULT_CONFIG = "classpath:config.json";
+
+    @Value("${routing.config:" + DEFAULT_CONFIG + "}")
+    private Resource config;
+
+    @Bean(destroyMethod = "close")
+    public SystemDnsUpstream systemDnsUpstream(@Value("${dns.threads:4}") int threads,
+                                               @Value("${dns.ttl-ms:60000}") long ttlMillis,
+                                               @Value("${dns.negative-ttl-ms:10000}") long negativeTtlMillis) {
+        return new SystemDnsUpstream(threads, ttlMillis, negativeTtlMillis);
+    }
+
+    @Bean
+    public HostResolver hostResolver(SystemDnsUpstream systemDnsUpstream,
+                                     @Value("${dns.negative-ttl-ms:10000}") long negativeTtlMillis,
+                                     @Value("${dns.max-entries:100000}") int maxEntries) {
+        return new AsyncDnsResolver(systemDnsUpstream, negativeTtlMillis, maxEntries);
+    }
+
+    /**
+     * routing.geo 为空时没有这个 bean，geosite:/geoip: 条件都不匹配
+     */
+    @Bean
+    @ConditionalOnExpression("!'${routing.geo:}'.isEmpty()")
+    public GeoData geoData(@Value("${routing.geo}") String geoFile) throws IOException {
+        long start = System.nanoTime();
+        GeoData geo = GeoData.open(Paths.get(geoFile));
+        log.info("geo data {} mapped in {} ms", geo, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return geo;
+    }
+
+    @Bean
+    public RouterHolder routerHolder(HostResolver hostResolver, ObjectProvider<GeoData> geoData) throws IOException {
+        GeoData geo = geoData.getIfAvailable();
+        long start = System.nanoTime();
+        Router router;
+        try (InputStream in = config.getInputStream()) {
+            router = Router.compile(RoutingConfig.parse(in).validate(), hostResolver, geo);
+        }
+        RouterHolder holder = new RouterHolder(router, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        log.info("routing config {} loaded, {}", config, holder.version());
+        if (!router.getUnresolvedTags().isEmpty()) {
+            log.warn("routing tags without data, they never match: {}", router.getUnresolvedTags());
+        }
+        return holder;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "routing.watch", matchIfMissing = true)
+    @Conditional(ConfigIsFileCondition.class)
+    public RoutingConfigWatcher routingConfigWatcher(RouterHolder routerHolder, HostResolver hostResolver,
+                                                     ObjectProvider<GeoData> geoData) throws IOException {
+        return new RoutingConfigWatcher(config.getFile().toPath(), routerHolder, hostResolver, geoData.getIfAvailable()).start();
+    }
+
+    /**
+     * routing.config 在文件系统上（不是 jar 里的 classpath 资源、URL 等）时才能监听变化
+     */
+    static class ConfigIsFileCondition extends SpringBootCondition {
+        @Override
+        public ConditionOutcome getMatchOutcome(ConditionContext context, AnnotatedTypeMetadata metadata) {
+            String location = context.getEnvironment().getProperty("routing.config", DEFAULT_CONFIG);
+            Resource resource = context.getResourceLoader().getResource(location);
+            ConditionMessage.Builder message = ConditionMessage.forCondition("routing config file");
+            if (resource.isFile()) {
+                return ConditionOutcome.match(message.found("file").items(location));
+            }
+            log.info("routing config {} is not a file, hot reload disabled", resource);
+            return ConditionOutcome.noMatch(message.didNotFind("file").items(location));
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.yejf.route;
+
+import java.util.List;
+
+/**
+ * config.json 中 routing.rules 的一条 field 规则，未配置的条件为 null
+ */
+public class RoutingRule {
+    private final String outboundTag;
+    private final List<String> domain;
+    private final List<String> ip;
+    private final List<String> inboundTag;
+    private final String port;
+
+    public RoutingRule(String outboundTag, List<String> domain, List<String> ip, List<String> inboundTag, String port) {
+        this.outboundTag = outboundTag;
+        this.domain = domain;
+        this.ip = ip;
+        this.inboundTag = inboundTag;
+        this.port = port;
+    }
+
+    public String getOutboundTag() {
+        return outboundTag;
+    }
+
+    public List<String> getDomain() {
+        return domain;
+    }
+
+    public List<String> getIp() {
+        return ip;
+    }
+
+    public List<String> getInboundTag() {
+        return inboundTag;
+    }
+
+    public String getPort() {
+        return port;
+    }
+}
@@ -0,0 +1,44 @@
+package com.yejf.route;
+
+/**
+ * 规则下标组成的位图，第 i 位表示第 i 条规则
+ */
+final class RuleMask {
+
+    private RuleMask() {
+    }
+
+    static long[] of(int words, int rule) {
+        long[] mask = new long[words];
+        mask[rule >>> 6] = 1L << rule;
+        return mask;
+    }
+
+    static long[] set(long[] mask, int words, int rule) {
+        if (mask == null) {
+            return of(words, rule);
+        }
+        mask[rule >>> 6] |= 1L << rule;
+        return mask;
+    }
+
+    /**
+     * 把 src 并入 dest，dest 为 null 时新建
+     */
+    static long[] or(long[] dest, long[] src) {
+        if (src == null) {
+            return dest;
+        }
+        if (dest == null) {
+            return src.clone();
+        }
+        for (int i = 0; i < src.length; i++) {
+            dest[i] |= src[i];
+        }
+        return dest;
+    }
+
+    static boolean get(long[] mask, int rule) {
+        return mask != null && (mask[rule >>> 6] & (1L << rule)) != 0;
+    }
+}
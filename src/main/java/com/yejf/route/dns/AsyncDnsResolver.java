@@ -0,0 +1,198 @@
+package com.yejf.route.dns;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.yejf.route.HostResolver;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 带缓存的异步解析。
+ * <ul>
+ * <li>按上游给的 TTL 缓存，成功和失败（negative）都缓存，TTL 限制在 [{@link #MIN_TTL_MILLIS}, {@link #MAX_TTL_MILLIS}]</li>
+ * <li>同一个域名同时只有一个上游请求，其他调用方共享同一个 future</li>
+ * <li>热门域名（本轮已命中 {@link #PREFETCH_MIN_HITS} 次）在 TTL 剩余不到 1/{@link #PREFETCH_WINDOW} 时后台刷新，
+ * 刷新期间继续返回旧结果</li>
+ * </ul>
+ * 条目存在有界的 Caffeine 缓存里，按各自的 TTL 过期，超过上限时按 Caffeine 的策略（W-TinyLFU）淘汰冷门域名。
+ */
+public class AsyncDnsResolver implements HostResolver {
+    static final long MIN_TTL_MILLIS = 1_000;
+    static final long MAX_TTL_MILLIS = 3_600_000;
+    static final int PREFETCH_MIN_HITS = 3;
+    static final int PREFETCH_WINDOW = 10;
+
+    private static final InetAddress[] NONE = new InetAddress[0];
+
+    private final DnsUpstream upstream;
+    private final long negativeTtlMillis;
+    private final LongSupplier clock;
+    private final Cache<String, Entry> cache;
+    private final ConcurrentHashMap<String, CompletableFuture<InetAddress[]>> inflight = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder prefetches = new LongAdder();
+
+    /**
+     * @param negativeTtlMillis 上游失败（异常）时 negative 结果的缓存时间
+     */
+    public AsyncDnsResolver(DnsUpstream upstream, long negativeTtlMillis, int maxEntries) {
+        this(upstream, negativeTtlMillis, maxEntries, System::currentTimeMillis, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 测试用：手动时钟，缓存维护在调用线程上同步执行
+     */
+    AsyncDnsResolver(DnsUpstream upstream, long negativeTtlMillis, int maxEntries, LongSupplier clock) {
+        this(upstream, negativeTtlMillis, maxEntries, clock, Runnable::run);
+    }
+
+    private AsyncDnsResolver(DnsUpstream upstream, long negativeTtlMillis, int maxEntries, LongSupplier clock, Executor executor) {
+        this.upstream = upstream;
+        this.negativeTtlMillis = negativeTtlMillis;
+        this.clock = clock;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfter(new Expiry<String, Entry>() {
+                    @Override
+                    public long expireAfterCreate(String key, Entry entry, long currentTime) {
+                        return TimeUnit.MILLISECONDS.toNanos(entry.expiresAt - entry.storedAt);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, entry, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .ticker(() -> TimeUnit.MILLISECONDS.toNanos(clock.getAsLong()))
+                .executor(executor)
+                .build();
+    }
+
+    @Override
+    public CompletableFuture<InetAddress[]> resolveAsync(String host) {
+        String name = host.toLowerCase();
+        long now = clock.getAsLong();
+        Entry entry = cache.getIfPresent(name);
+        if (entry != null && now < entry.expiresAt) {
+            hits.increment();
+            if (entry.hits.incrementAndGet() >= PREFETCH_MIN_HITS
+                    && (entry.expiresAt - now) * PREFETCH_WINDOW <= entry.expiresAt - entry.storedAt
+                    && !inflight.containsKey(name)) {
+                prefetches.increment();
+                fetch(name);
+            }
+            return entry.future;
+        }
+        misses.increment();
+        return fetch(name);
+    }
+
+    /**
+     * 同步等待 {@link #resolveAsync(String)}，解析不到抛 {@link UnknownHostException}
+     */
+    @Override
+    public InetAddress[] resolve(String host) throws UnknownHostException {
+        InetAddress[] addresses = resolveAsync(host).join();
+        if (addresses.length == 0) {
+            throw new UnknownHostException(host);
+        }
+        return addresses;
+    }
+
+    public long size() {
+        cache.cleanUp();
+        return cache.estimatedSize();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * 实际发给上游的请求数，含预取
+     */
+    public long getLookups() {
+        return lookups.sum();
+    }
+
+    public long getPrefetches() {
+        return prefetches.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "AsyncDnsResolver{entries=" + cache.estimatedSize() + ", hits=" + hits + ", misses=" + misses
+                + ", lookups=" + lookups + ", prefetches=" + prefetches + "}";
+    }
+
+    private CompletableFuture<InetAddress[]> fetch(String name) {
+        CompletableFuture<InetAddress[]> pending = inflight.get(name);
+        if (pending != null) {
+            return pending;
+        }
+        CompletableFuture<InetAddress[]> created = new CompletableFuture<>();
+        pending = inflight.putIfAbsent(name, created);
+        if (pending != null) {
+            return pending;
+        }
+        lookups.increment();
+        CompletableFuture<DnsAnswer> answer;
+        try {
+            answer = upstream.lookup(name);
+        } catch (RuntimeException e) {
+            answer = new CompletableFuture<>();
+            answer.completeExceptionally(e);
+        }
+        answer.whenComplete((result, error) -> {
+            InetAddress[] addresses = error == null && result != null ? result.getAddresses() : NONE;
+            long ttl = error == null && result != null
+                    ? Math.max(MIN_TTL_MILLIS, Math.min(MAX_TTL_MILLIS, result.getTtlMillis()))
+                    : negativeTtlMillis;
+            // 先写缓存再移出 inflight，并发的调用方总能看到其中之一
+            store(name, addresses, ttl);
+            inflight.remove(name, created);
+            created.complete(addresses);
+        });
+        return created;
+    }
+
+    private void store(String name, InetAddress[] addresses, long ttlMillis) {
+        long now = clock.getAsLong();
+        cache.put(name, new Entry(CompletableFuture.completedFuture(addresses), now, now + ttlMillis));
+    }
+
+    private static final class Entry {
+        private final CompletableFuture<InetAddress[]> future;
+        private final long storedAt;
+        private final long expiresAt;
+        private final AtomicInteger hits = new AtomicInteger();
+
+        Entry(CompletableFuture<InetAddress[]> future, long storedAt, long expiresAt) {
+            this.future = future;
+            this.storedAt = storedAt;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.yejf.route.dns;
+
+import java.net.InetAddress;
+
+/**
+ * 上游的一次解析结果，addresses 为空表示域名不存在（negative）
+ */
+public class DnsAnswer {
+    private static final InetAddress[] NONE = new InetAddress[0];
+
+    private final InetAddress[] addresses;
+    private final long ttlMillis;
+
+    public DnsAnswer(InetAddress[] addresses, long ttlMillis) {
+        this.addresses = addresses == null ? NONE : addresses;
+        this.ttlMillis = ttlMillis;
+    }
+
+    public static DnsAnswer negative(long ttlMillis) {
+        return new DnsAnswer(NONE, ttlMillis);
+    }
+
+    public InetAddress[] getAddresses() {
+        return addresses;
+    }
+
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+}
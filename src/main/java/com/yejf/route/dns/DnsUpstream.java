@@ -0,0 +1,14 @@
+package com.yejf.route.dns;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link AsyncDnsResolver} 背后真正做解析的上游，测试里可以换成本地的假实现
+ */
+public interface DnsUpstream {
+
+    /**
+     * 不能阻塞调用方；域名不存在时返回 negative 的结果，而不是异常
+     */
+    CompletableFuture<DnsAnswer> lookup(String host);
+}
@@ -0,0 +1,46 @@
+package com.yejf.route.dns;
+
+import java.io.Closeable;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 用 {@link InetAddress#getAllByName(String)} 解析，放在独立的小线程池里阻塞，调用方拿到的是 future。
+ * 系统解析拿不到真实 TTL，统一用构造时给的 TTL。
+ */
+public class SystemDnsUpstream implements DnsUpstream, Closeable {
+    private final ExecutorService executor;
+    private final long ttlMillis;
+    private final long negativeTtlMillis;
+
+    public SystemDnsUpstream(int threads, long ttlMillis, long negativeTtlMillis) {
+        AtomicInteger count = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "dns-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.ttlMillis = ttlMillis;
+        this.negativeTtlMillis = negativeTtlMillis;
+    }
+
+    @Override
+    public CompletableFuture<DnsAnswer> lookup(String host) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return new DnsAnswer(InetAddress.getAllByName(host), ttlMillis);
+            } catch (UnknownHostException e) {
+                return DnsAnswer.negative(negativeTtlMillis);
+            }
+        }, executor);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
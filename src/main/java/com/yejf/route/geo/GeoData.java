@@ -0,0 +1,75 @@
+package com.yejf.route.geo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * mmap 打开 {@link GeoDataCompiler} 生成的文件，打开时只读 tag 目录，
+ * 查询直接在映射的内存上二分，不反序列化，数据不占堆。
+ * 只用绝对位置读取，可以被多个线程同时查询。
+ */
+public class GeoData {
+    private final Path file;
+    private final ByteBuffer buffer;
+    private final Map<String, Integer> sites = new HashMap<>();
+    private final Map<String, Integer> ips = new HashMap<>();
+
+    private GeoData(Path file, ByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.buffer = buffer;
+        if (buffer.limit() < 8 || buffer.getInt(0) != GeoFormat.MAGIC) {
+            throw new IOException(file + " is not a geo data file");
+        }
+        int tagCount = buffer.getInt(4);
+        int position = 8;
+        for (int i = 0; i < tagCount; i++) {
+            byte kind = buffer.get(position);
+            int nameLength = buffer.getShort(position + 1) & 0xffff;
+            byte[] name = new byte[nameLength];
+            ByteBuffer slice = buffer.duplicate();
+            slice.position(position + 3);
+            slice.get(name);
+            int offset = buffer.getInt(position + 3 + nameLength);
+            (kind == GeoFormat.KIND_SITE ? sites : ips).put(new String(name, StandardCharsets.UTF_8), offset);
+            position += 3 + nameLength + 4;
+        }
+    }
+
+    public static GeoData open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // 映射在 channel 关闭后依然有效
+            return new GeoData(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * 返回 geosite:tag 的匹配器，没有这个 tag 返回 null
+     */
+    public GeoSite site(String tag) {
+        Integer offset = sites.get(tag.toLowerCase());
+        return offset == null ? null : new GeoSite(buffer, offset);
+    }
+
+    /**
+     * 返回 geoip:tag 的匹配器，没有这个 tag 返回 null
+     */
+    public GeoIp ip(String tag) {
+        Integer offset = ips.get(tag.toLowerCase());
+        return offset == null ? null : new GeoIp(buffer, offset);
+    }
+
+    public int getTagCount() {
+        return sites.size() + ips.size();
+    }
+
+    @Override
+    public String toString() {
+        return file + " (" + sites.size() + " geosite, " + ips.size() + " geoip tags)";
+    }
+}
@@ -0,0 +1,310 @@
+package com.yejf.route.geo;
+
+import com.yejf.route.IpAddresses;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 把文本形式的 geosite/geoip 数据编译成 {@link GeoData} 可以直接 mmap 的二进制文件。
+ * <p>
+ * 源目录结构：
+ * <pre>
+ * geosite/&lt;tag&gt;[.txt]   每行一个规则，格式同 domain-list-community：
+ *                       example.com / domain:x / full:x / keyword:x / regexp:x / include:tag，
+ *                       # 之后是注释，@attr 属性忽略
+ * geoip/&lt;tag&gt;[.txt]     每行一个 CIDR 或单个 IP
+ * </pre>
+ * 用法：{@code java com.yejf.route.geo.GeoDataCompiler <sourceDir> <out.dat>}
+ */
+public class GeoDataCompiler {
+    private static final Comparator<byte[]> UNSIGNED = GeoDataCompiler::compareUnsigned;
+
+    private final Map<String, Path> siteSources = new TreeMap<>();
+    private final Map<String, Path> ipSources = new TreeMap<>();
+
+    public GeoDataCompiler(Path sourceDir) throws IOException {
+        collect(sourceDir.resolve("geosite"), siteSources);
+        collect(sourceDir.resolve("geoip"), ipSources);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: GeoDataCompiler <sourceDir> <out.dat>");
+            System.exit(1);
+        }
+        long start = System.currentTimeMillis();
+        GeoDataCompiler compiler = new GeoDataCompiler(Paths.get(args[0]));
+        compiler.compile(Paths.get(args[1]));
+        System.out.println("compiled " + compiler.siteSources.size() + " geosite and " + compiler.ipSources.size()
+                + " geoip tags to " + args[1] + " in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    public void compile(Path out) throws IOException {
+        List<String> names = new ArrayList<>();
+        List<Byte> kinds = new ArrayList<>();
+        List<byte[]> sections = new ArrayList<>();
+        for (String tag : siteSources.keySet()) {
+            names.add(tag);
+            kinds.add(GeoFormat.KIND_SITE);
+            sections.add(siteSection(readSite(tag, new HashSet<>())));
+        }
+        for (Map.Entry<String, Path> entry : ipSources.entrySet()) {
+            names.add(entry.getKey());
+            kinds.add(GeoFormat.KIND_IP);
+            sections.add(ipSection(entry.getValue()));
+        }
+
+        int offset = 8;
+        for (String name : names) {
+            offset += 1 + 2 + name.getBytes(StandardCharsets.UTF_8).length + 4;
+        }
+        Path tmp = out.resolveSibling(out.getFileName() + ".tmp");
+        try (OutputStream file = Files.newOutputStream(tmp);
+             DataOutputStream data = new DataOutputStream(new BufferedOutputStream(file))) {
+            data.writeInt(GeoFormat.MAGIC);
+            data.writeInt(names.size());
+            for (int i = 0; i < names.size(); i++) {
+                byte[] name = names.get(i).getBytes(StandardCharsets.UTF_8);
+                data.writeByte(kinds.get(i));
+                data.writeShort(name.length);
+                data.write(name);
+                data.writeInt(offset);
+                offset += sections.get(i).length;
+            }
+            for (byte[] section : sections) {
+                data.write(section);
+            }
+        }
+        Files.move(tmp, out, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * 倒序域名 -> 类型，keyword/regexp 以原文为 key
+     */
+    private Map<String, Byte> readSite(String tag, Set<String> visiting) throws IOException {
+        Path source = siteSources.get(tag);
+        if (source == null) {
+            throw new IOException("geosite:" + tag + " not found");
+        }
+        if (!visiting.add(tag)) {
+            throw new IOException("include cycle at geosite:" + tag);
+        }
+        Map<String, Byte> entries = new HashMap<>();
+        for (String raw : Files.readAllLines(source, StandardCharsets.UTF_8)) {
+            String line = stripComment(raw);
+            if (line.isEmpty()) {
+                continue;
+            }
+            String rule = line.split("\\s+")[0];
+            if (rule.startsWith("include:")) {
+                for (Map.Entry<String, Byte> included : readSite(rule.substring("include:".length()).toLowerCase(), visiting).entrySet()) {
+                    merge(entries, included.getKey(), included.getValue());
+                }
+            } else if (rule.startsWith("full:")) {
+                merge(entries, reverse(rule.substring("full:".length())), GeoFormat.TYPE_FULL);
+            } else if (rule.startsWith("keyword:")) {
+                entries.put("keyword:" + rule.substring("keyword:".length()).toLowerCase(), GeoFormat.TYPE_KEYWORD);
+            } else if (rule.startsWith("regexp:")) {
+                entries.put("regexp:" + rule.substring("regexp:".length()), GeoFormat.TYPE_REGEXP);
+            } else {
+                String domain = rule.startsWith("domain:") ? rule.substring("domain:".length()) : rule;
+                merge(entries, reverse(domain), GeoFormat.TYPE_DOMAIN);
+            }
+        }
+        visiting.remove(tag);
+        return entries;
+    }
+
+    private static void merge(Map<String, Byte> entries, String key, byte type) {
+        // domain: 覆盖 full:，同一个 key 保留范围大的
+        entries.merge(key, type, (a, b) -> (byte) Math.min(a, b));
+    }
+
+    private static byte[] siteSection(Map<String, Byte> entries) throws IOException {
+        List<byte[]> keys = new ArrayList<>();
+        Map<String, Byte> patterns = new TreeMap<>();
+        for (Map.Entry<String, Byte> entry : entries.entrySet()) {
+            if (entry.getValue() == GeoFormat.TYPE_KEYWORD || entry.getValue() == GeoFormat.TYPE_REGEXP) {
+                patterns.put(entry.getKey().substring(entry.getKey().indexOf(':') + 1), entry.getValue());
+            } else {
+                byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                if (key.length > GeoFormat.MAX_KEY_LENGTH) {
+                    throw new IOException("domain too long: " + GeoDataCompiler.reverse(entry.getKey()));
+                }
+                keys.add(key);
+            }
+        }
+        keys.sort(UNSIGNED);
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        List<Integer> restarts = new ArrayList<>();
+        byte[] previous = new byte[0];
+        for (int i = 0; i < keys.size(); i++) {
+            byte[] key = keys.get(i);
+            int shared = 0;
+            if (i % GeoFormat.RESTART_INTERVAL == 0) {
+                restarts.add(body.size());
+            } else {
+                int max = Math.min(previous.length, key.length);
+                while (shared < max && previous[shared] == key[shared]) {
+                    shared++;
+                }
+            }
+            body.write(entries.get(new String(key, StandardCharsets.UTF_8)));
+            body.write(shared);
+            body.write(key.length - shared);
+            body.write(key, shared, key.length - shared);
+            previous = key;
+        }
+
+        ByteArrayOutputStream section = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(section);
+        out.writeInt(keys.size());
+        out.writeInt(restarts.size());
+        out.writeInt(body.size());
+        for (int restart : restarts) {
+            out.writeInt(restart);
+        }
+        body.writeTo(out);
+        out.writeInt(patterns.size());
+        for (Map.Entry<String, Byte> pattern : patterns.entrySet()) {
+            byte[] value = pattern.getKey().getBytes(StandardCharsets.UTF_8);
+            out.writeByte(pattern.getValue());
+            out.writeShort(value.length);
+            out.write(value);
+        }
+        out.flush();
+        return section.toByteArray();
+    }
+
+    private static byte[] ipSection(Path source) throws IOException {
+        List<byte[][]> v4 = new ArrayList<>();
+        List<byte[][]> v6 = new ArrayList<>();
+        for (String raw : Files.readAllLines(source, StandardCharsets.UTF_8)) {
+            String line = stripComment(raw);
+            if (line.isEmpty()) {
+                continue;
+            }
+            int slash = line.indexOf('/');
+            byte[] address = IpAddresses.parse(slash < 0 ? line : line.substring(0, slash));
+            if (address == null) {
+                throw new IOException("bad ip in " + source + ": " + line);
+            }
+            int prefix = slash < 0 ? address.length * 8 : Integer.parseInt(line.substring(slash + 1));
+            if (prefix < 0 || prefix > address.length * 8) {
+                throw new IOException("bad prefix in " + source + ": " + line);
+            }
+            (address.length == 4 ? v4 : v6).add(range(address, prefix));
+        }
+
+        ByteArrayOutputStream section = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(section);
+        for (List<byte[][]> ranges : Arrays.asList(v4, v6)) {
+            List<byte[][]> merged = mergeRanges(ranges);
+            out.writeInt(merged.size());
+            for (byte[][] range : merged) {
+                out.write(range[0]);
+                out.write(range[1]);
+            }
+        }
+        out.flush();
+        return section.toByteArray();
+    }
+
+    private static byte[][] range(byte[] address, int prefix) {
+        byte[] start = address.clone();
+        byte[] end = address.clone();
+        for (int bit = prefix; bit < address.length * 8; bit++) {
+            start[bit >>> 3] &= (byte) ~(0x80 >>> (bit & 7));
+            end[bit >>> 3] |= (byte) (0x80 >>> (bit & 7));
+        }
+        return new byte[][]{start, end};
+    }
+
+    private static List<byte[][]> mergeRanges(List<byte[][]> ranges) {
+        ranges.sort((a, b) -> compareUnsigned(a[0], b[0]));
+        List<byte[][]> merged = new ArrayList<>();
+        for (byte[][] range : ranges) {
+            byte[][] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            byte[] next = last == null ? null : increment(last[1]);
+            if (last != null && (next == null || compareUnsigned(range[0], next) <= 0)) {
+                if (compareUnsigned(range[1], last[1]) > 0) {
+                    last[1] = range[1];
+                }
+            } else {
+                merged.add(range);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * 地址加一，溢出（全 1）时返回 null
+     */
+    private static byte[] increment(byte[] address) {
+        byte[] next = address.clone();
+        for (int i = next.length - 1; i >= 0; i--) {
+            if (++next[i] != 0) {
+                return next;
+            }
+        }
+        return null;
+    }
+
+    static int compareUnsigned(byte[] a, byte[] b) {
+        int length = Math.min(a.length, b.length);
+        for (int i = 0; i < length; i++) {
+            int cmp = (a[i] & 0xff) - (b[i] & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return a.length - b.length;
+    }
+
+    static String reverse(String domain) {
+        String name = domain.trim().toLowerCase();
+        if (name.endsWith(".")) {
+            name = name.substring(0, name.length() - 1);
+        }
+        return new StringBuilder(name).reverse().toString();
+    }
+
+    private static String stripComment(String line) {
+        int hash = line.indexOf('#');
+        return (hash < 0 ? line : line.substring(0, hash)).trim();
+    }
+
+    private static void collect(Path dir, Map<String, Path> sources) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (Files.isRegularFile(file) && !name.startsWith(".")) {
+                    sources.put((name.endsWith(".txt") ? name.substring(0, name.length() - 4) : name).toLowerCase(), file);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.yejf.route.geo;
+
+/**
+ * geo 数据文件的常量。所有整数大端。
+ * <pre>
+ * int magic, int tagCount
+ * tagCount × { byte kind, short nameLength, name(UTF-8), int offset }
+ *
+ * site 段：int entryCount, int restartCount, int dataLength,
+ *         restartCount × int（相对 data 起点的偏移）,
+ *         data：entryCount × { byte type, byte shared, byte unshared, unshared bytes },
+ *         int patternCount, patternCount × { byte type, short length, bytes }
+ * ip 段：  int v4Count, v4Count × { int start, int end },
+ *         int v6Count, v6Count × { 16 bytes start, 16 bytes end }
+ * </pre>
+ * site 的 key 是倒序后的小写域名（google.com 存成 moc.elgoog），按无符号字节序排列并做前缀压缩，
+ * 每 {@link #RESTART_INTERVAL} 条存一次完整 key 作为二分查找的 restart 点。
+ * ip 段是合并过的不重叠区间，按起点排列。
+ */
+final class GeoFormat {
+    static final int MAGIC = 0x47454F31;
+
+    static final byte KIND_SITE = 0;
+    static final byte KIND_IP = 1;
+
+    static final byte TYPE_DOMAIN = 0;
+    static final byte TYPE_FULL = 1;
+    static final byte TYPE_KEYWORD = 2;
+    static final byte TYPE_REGEXP = 3;
+
+    static final int RESTART_INTERVAL = 16;
+
+    /**
+     * 域名最长 253 字节，shared/unshared 各用一个字节
+     */
+    static final int MAX_KEY_LENGTH = 255;
+
+    private GeoFormat() {
+    }
+}
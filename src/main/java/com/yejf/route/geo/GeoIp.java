@@ -0,0 +1,81 @@
+package com.yejf.route.geo;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 一个 geoip tag 的地址集合：映射内存里按起点排好序、互不重叠的区间，二分查找
+ */
+public class GeoIp {
+    private static final int V6_RANGE = 32;
+
+    private final ByteBuffer buffer;
+    private final int v4Count;
+    private final int v4Start;
+    private final int v6Count;
+    private final int v6Start;
+
+    GeoIp(ByteBuffer buffer, int offset) {
+        this.buffer = buffer;
+        this.v4Count = buffer.getInt(offset);
+        this.v4Start = offset + 4;
+        int v6Offset = v4Start + v4Count * 8;
+        this.v6Count = buffer.getInt(v6Offset);
+        this.v6Start = v6Offset + 4;
+    }
+
+    /**
+     * @param address 4 字节 IPv4 或 16 字节 IPv6
+     */
+    public boolean contains(byte[] address) {
+        return address.length == 4 ? containsV4(address) : containsV6(address);
+    }
+
+    public int size() {
+        return v4Count + v6Count;
+    }
+
+    private boolean containsV4(byte[] address) {
+        int ip = (address[0] & 0xff) << 24 | (address[1] & 0xff) << 16 | (address[2] & 0xff) << 8 | address[3] & 0xff;
+        int low = 0;
+        int high = v4Count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int position = v4Start + mid * 8;
+            if (Integer.compareUnsigned(buffer.getInt(position), ip) > 0) {
+                high = mid - 1;
+            } else if (Integer.compareUnsigned(buffer.getInt(position + 4), ip) < 0) {
+                low = mid + 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean containsV6(byte[] address) {
+        int low = 0;
+        int high = v6Count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int position = v6Start + mid * V6_RANGE;
+            if (compare(position, address) > 0) {
+                high = mid - 1;
+            } else if (compare(position + 16, address) < 0) {
+                low = mid + 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int compare(int position, byte[] address) {
+        for (int i = 0; i < 16; i++) {
+            int cmp = (buffer.get(position + i) & 0xff) - (address[i] & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,195 @@
+package com.yejf.route.geo;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * 一个 geosite tag 的域名集合，domain/full 条目留在映射内存里查，
+ * keyword/regexp 条目很少，打开时读到堆上
+ */
+public class GeoSite {
+    private final ByteBuffer buffer;
+    private final int entryCount;
+    private final int restartCount;
+    private final int restartsStart;
+    private final int dataStart;
+    private final int dataEnd;
+    private final List<String> keywords = new ArrayList<>();
+    private final List<Pattern> regexps = new ArrayList<>();
+
+    GeoSite(ByteBuffer buffer, int offset) {
+        this.buffer = buffer;
+        this.entryCount = buffer.getInt(offset);
+        this.restartCount = buffer.getInt(offset + 4);
+        int dataLength = buffer.getInt(offset + 8);
+        this.restartsStart = offset + 12;
+        this.dataStart = restartsStart + restartCount * 4;
+        this.dataEnd = dataStart + dataLength;
+
+        int position = dataEnd;
+        int patternCount = buffer.getInt(position);
+        position += 4;
+        for (int i = 0; i < patternCount; i++) {
+            byte type = buffer.get(position);
+            byte[] value = new byte[buffer.getShort(position + 1) & 0xffff];
+            ByteBuffer slice = buffer.duplicate();
+            slice.position(position + 3);
+            slice.get(value);
+            position += 3 + value.length;
+            String pattern = new String(value, StandardCharsets.UTF_8);
+            if (type == GeoFormat.TYPE_KEYWORD) {
+                keywords.add(pattern);
+            } else {
+                regexps.add(Pattern.compile(pattern));
+            }
+        }
+    }
+
+    /**
+     * host 需为小写、不带末尾的点。要和多个 GeoSite 比较时用 {@link #matches(Query)}
+     */
+    public boolean matches(String host) {
+        return matches(new Query(host));
+    }
+
+    public boolean matches(Query query) {
+        String host = query.host;
+        byte[] reversed = query.reversed;
+        if (reversed != null) {
+            for (int end = 1; end <= reversed.length; end++) {
+                if (end == reversed.length || reversed[end] == '.') {
+                    int type = find(reversed, end, query.current);
+                    if (type == GeoFormat.TYPE_DOMAIN || type == GeoFormat.TYPE_FULL && end == reversed.length) {
+                        return true;
+                    }
+                }
+            }
+        }
+        for (String keyword : keywords) {
+            if (host.contains(keyword)) {
+                return true;
+            }
+        }
+        for (Pattern regexp : regexps) {
+            if (regexp.matcher(host).find()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return entryCount + keywords.size() + regexps.size();
+    }
+
+    /**
+     * 查找 key[0, length)，返回条目类型，找不到返回 -1。
+     * 先对 restart 点上的完整 key 二分，再在块内顺序还原前缀压缩的 key。
+     */
+    private int find(byte[] key, int length, byte[] current) {
+        int low = 0;
+        int high = restartCount - 1;
+        int block = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (compareAt(dataStart + buffer.getInt(restartsStart + mid * 4), key, length) <= 0) {
+                block = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (block < 0) {
+            return -1;
+        }
+        int position = dataStart + buffer.getInt(restartsStart + block * 4);
+        int end = block + 1 < restartCount ? dataStart + buffer.getInt(restartsStart + (block + 1) * 4) : dataEnd;
+        while (position < end) {
+            byte type = buffer.get(position);
+            int shared = buffer.get(position + 1) & 0xff;
+            int unshared = buffer.get(position + 2) & 0xff;
+            position += 3;
+            for (int i = 0; i < unshared; i++) {
+                current[shared + i] = buffer.get(position + i);
+            }
+            position += unshared;
+            int cmp = compare(current, shared + unshared, key, length);
+            if (cmp == 0) {
+                return type;
+            }
+            if (cmp > 0) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 比较 restart 点上的完整 key（shared 为 0）和目标 key
+     */
+    private int compareAt(int position, byte[] key, int length) {
+        int keyLength = buffer.get(position + 2) & 0xff;
+        int common = Math.min(keyLength, length);
+        for (int i = 0; i < common; i++) {
+            int cmp = (buffer.get(position + 3 + i) & 0xff) - (key[i] & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return keyLength - length;
+    }
+
+    private static int compare(byte[] a, int aLength, byte[] b, int bLength) {
+        int common = Math.min(aLength, bLength);
+        for (int i = 0; i < common; i++) {
+            int cmp = (a[i] & 0xff) - (b[i] & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return aLength - bLength;
+    }
+
+    /**
+     * 一次查询的 host：反转、编码只做一次，还原前缀压缩 key 的缓冲区也在所有 GeoSite 之间复用。
+     * 不是线程安全的，每次查询新建一个
+     */
+    public static final class Query {
+        private final String host;
+        /** 反转后的 UTF-8 编码，超过 MAX_KEY_LENGTH 时为 null（不可能命中 domain/full 条目） */
+        private final byte[] reversed;
+        private final byte[] current;
+
+        /**
+         * host 需为小写、不带末尾的点
+         */
+        public Query(String host) {
+            this.host = host;
+            this.reversed = reverse(host);
+            this.current = reversed == null ? null : new byte[GeoFormat.MAX_KEY_LENGTH];
+        }
+
+        /**
+         * 和 {@link GeoDataCompiler#reverse} 一样按字符反转再编码；域名基本都是 ASCII，直接反着写字节
+         */
+        private static byte[] reverse(String host) {
+            int length = host.length();
+            if (length > GeoFormat.MAX_KEY_LENGTH) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i++) {
+                char c = host.charAt(length - 1 - i);
+                if (c >= 0x80) {
+                    bytes = new StringBuilder(host).reverse().toString().getBytes(StandardCharsets.UTF_8);
+                    return bytes.length > GeoFormat.MAX_KEY_LENGTH ? null : bytes;
+                }
+                bytes[i] = (byte) c;
+            }
+            return bytes;
+        }
+    }
+}
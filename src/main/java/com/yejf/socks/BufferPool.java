@@ -0,0 +1,39 @@
+package com.yejf.socks;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * direct buffer 池。
+ * socket 读写用 direct buffer 可以省掉 JDK 对堆内 buffer 额外做的一次拷贝，
+ * 池化是为了避免频繁分配、释放堆外内存。只在 selector 线程里用，非线程安全。
+ */
+class BufferPool {
+    private final int bufferSize;
+    private final int maxPooled;
+    private final ArrayDeque<ByteBuffer> free = new ArrayDeque<>();
+
+    BufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+    }
+
+    ByteBuffer acquire() {
+        ByteBuffer buffer = free.poll();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(bufferSize);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    void release(ByteBuffer buffer) {
+        if (buffer != null && free.size() < maxPooled) {
+            free.push(buffer);
+        }
+    }
+
+    int pooled() {
+        return free.size();
+    }
+}
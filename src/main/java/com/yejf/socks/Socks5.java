@@ -0,0 +1,137 @@
+package com.yejf.socks;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * RFC 1928 的常量和地址编解码
+ */
+final class Socks5 {
+    static final byte VERSION = 5;
+
+    static final byte METHOD_NO_AUTH = 0;
+    static final byte METHOD_NO_ACCEPTABLE = (byte) 0xFF;
+
+    static final byte CMD_CONNECT = 1;
+    static final byte CMD_UDP_ASSOCIATE = 3;
+
+    static final byte ATYP_IPV4 = 1;
+    static final byte ATYP_DOMAIN = 3;
+    static final byte ATYP_IPV6 = 4;
+
+    static final byte REP_SUCCEEDED = 0;
+    static final byte REP_GENERAL_FAILURE = 1;
+    static final byte REP_HOST_UNREACHABLE = 4;
+    static final byte REP_CONNECTION_REFUSED = 5;
+    static final byte REP_COMMAND_NOT_SUPPORTED = 7;
+
+    /**
+     * UDP 头最长：RSV(2) FRAG(1) ATYP(1) IPv6(16) PORT(2)
+     */
+    static final int MAX_UDP_HEADER = 22;
+
+    private Socks5() {
+    }
+
+    /**
+     * 从 buffer 当前位置读 ATYP DST.ADDR DST.PORT。
+     * 数据不完整时返回 null，position 不变。
+     */
+    static Address readAddress(ByteBuffer buffer) throws ProtocolException {
+        int start = buffer.position();
+        if (buffer.remaining() < 1) {
+            return null;
+        }
+        byte type = buffer.get();
+        int length;
+        switch (type) {
+            case ATYP_IPV4:
+                length = 4;
+                break;
+            case ATYP_IPV6:
+                length = 16;
+                break;
+            case ATYP_DOMAIN:
+                if (buffer.remaining() < 1) {
+                    buffer.position(start);
+                    return null;
+                }
+                length = buffer.get() & 0xff;
+                break;
+            default:
+                throw new ProtocolException("unsupported address type: " + type);
+        }
+        if (buffer.remaining() < length + 2) {
+            buffer.position(start);
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        int port = buffer.getShort() & 0xffff;
+        if (type == ATYP_DOMAIN) {
+            return new Address(new String(bytes, StandardCharsets.US_ASCII), null, port);
+        }
+        return new Address(null, bytes, port);
+    }
+
+    /**
+     * 写 ATYP BND.ADDR BND.PORT，地址为空或未解析时写 0.0.0.0:0
+     */
+    static void writeAddress(ByteBuffer buffer, InetSocketAddress address) {
+        InetAddress ip = address == null ? null : address.getAddress();
+        if (ip == null) {
+            buffer.put(ATYP_IPV4).putInt(0).putShort((short) 0);
+            return;
+        }
+        buffer.put(ip instanceof Inet4Address ? ATYP_IPV4 : ATYP_IPV6);
+        buffer.put(ip.getAddress());
+        buffer.putShort((short) address.getPort());
+    }
+
+    static int addressLength(InetSocketAddress address) {
+        return 1 + (address.getAddress() instanceof Inet4Address ? 4 : 16) + 2;
+    }
+
+    static final class Address {
+        private final String domain;
+        private final byte[] ip;
+        private final int port;
+
+        Address(String domain, byte[] ip, int port) {
+            this.domain = domain;
+            this.ip = ip;
+            this.port = port;
+        }
+
+        /**
+         * 用于路由的 host：域名或 IP 字面量
+         */
+        String host() throws ProtocolException {
+            if (domain != null) {
+                return domain;
+            }
+            try {
+                return InetAddress.getByAddress(ip).getHostAddress();
+            } catch (UnknownHostException e) {
+                throw new ProtocolException("bad address length: " + ip.length);
+            }
+        }
+
+        String domain() {
+            return domain;
+        }
+
+        byte[] ip() {
+            return ip;
+        }
+
+        int port() {
+            return port;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.yejf.socks;
+
+import com.yejf.route.HostResolver;
+import com.yejf.route.InboundConfig;
+import com.yejf.route.RouterHolder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+/**
+ * socks.enabled=true 时按 config.json 里的 socks inbound 启动 {@link Socks5Server}。
+ * 路由规则跟着热加载走，监听地址只在启动时读一次。
+ * socks.handshake-timeout-ms / socks.idle-timeout-ms 分别限制握手时长和转发阶段的空闲时长，&lt;= 0 不限制。
+ */
+@Configuration
+@ConditionalOnProperty(name = "socks.enabled", havingValue = "true")
+public class Socks5Configuration {
+
+    @Bean(destroyMethod = "close")
+    public Socks5Server socks5Server(RouterHolder routerHolder, HostResolver hostResolver,
+                                     @Value("${socks.handshake-timeout-ms:10000}") long handshakeTimeoutMillis,
+                                     @Value("${socks.idle-timeout-ms:300000}") long idleTimeoutMillis) throws IOException {
+        for (InboundConfig inbound : routerHolder.get().getConfig().getInbounds()) {
+            if ("socks".equals(inbound.getProtocol())) {
+                return new Socks5Server(new InetSocketAddress(inbound.getListen(), inbound.getPort()),
+                        inbound.getTag(), inbound.isUdp(), routerHolder, hostResolver,
+                        handshakeTimeoutMillis, idleTimeoutMillis).start();
+            }
+        }
+        throw new IllegalStateException("no socks inbound in routing config");
+    }
+}
@@ -0,0 +1,777 @@
+package com.yejf.socks;
+
+import com.yejf.route.HostResolver;
+import com.yejf.route.OutboundConfig;
+import com.yejf.route.Router;
+import com.yejf.route.RouterHolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.SocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单线程 selector 实现的 SOCKS5 inbound（无认证，支持 CONNECT 和 UDP ASSOCIATE）。
+ * <p>
+ * 每个目标按 {@link RouterHolder} 当前的路由规则选 outbound：
+ * freedom 直连并在两端之间转发，blackhole 直接丢弃，其他协议（如 vmess）本地不支持，回复失败。
+ * 转发用池化的 direct buffer；socket 之间没有 transferTo 这样的零拷贝通道，
+ * direct buffer 已经省掉了堆内 buffer 的额外拷贝。
+ * 路由和域名解析都走异步接口，结果回到 selector 线程上继续处理，selector 线程不会阻塞在 DNS 上。
+ * <p>
+ * 握手（到开始转发为止）和转发阶段的空闲各有超时，selector 循环定期扫一遍连接，
+ * 超时的直接关掉，buffer 还回池里。
+ */
+public class Socks5Server implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(Socks5Server.class);
+    static final long DEFAULT_HANDSHAKE_TIMEOUT_MILLIS = 10_000;
+    static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 300_000;
+    private static final long MIN_SWEEP_INTERVAL_MILLIS = 10;
+    private static final long MAX_SWEEP_INTERVAL_MILLIS = 1000;
+    private static final byte[] HTTP_403 =
+            "HTTP/1.1 403 Forbidden\r\nConnection: close\r\nContent-Length: 0\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final RouterHolder routerHolder;
+    private final HostResolver resolver;
+    private final String inboundTag;
+    private final boolean udp;
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final BufferPool tcpBuffers = new BufferPool(32 * 1024, 512);
+    private final BufferPool udpBuffers = new BufferPool(64 * 1024 + Socks5.MAX_UDP_HEADER, 32);
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final long handshakeTimeoutNanos;
+    private final long idleTimeoutNanos;
+    private final long sweepIntervalMillis;
+    private long lastSweep = System.nanoTime();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    /**
+     * @param resolver 解析 freedom 出口的域名目标
+     */
+    public Socks5Server(InetSocketAddress bind, String inboundTag, boolean udp,
+                        RouterHolder routerHolder, HostResolver resolver) throws IOException {
+        this(bind, inboundTag, udp, routerHolder, resolver, DEFAULT_HANDSHAKE_TIMEOUT_MILLIS, DEFAULT_IDLE_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param handshakeTimeoutMillis 从 accept 到开始转发的最长时间，&lt;= 0 不限制
+     * @param idleTimeoutMillis      转发或 UDP ASSOCIATE 阶段两个方向都没有数据的最长时间，&lt;= 0 不限制
+     */
+    public Socks5Server(InetSocketAddress bind, String inboundTag, boolean udp,
+                        RouterHolder routerHolder, HostResolver resolver,
+                        long handshakeTimeoutMillis, long idleTimeoutMillis) throws IOException {
+        this.handshakeTimeoutNanos = toNanos(handshakeTimeoutMillis);
+        this.idleTimeoutNanos = toNanos(idleTimeoutMillis);
+        // 扫描间隔取较短超时的一半，超时最多晚半个超时被发现
+        long shortest = Math.min(this.handshakeTimeoutNanos, this.idleTimeoutNanos);
+        this.sweepIntervalMillis = shortest == Long.MAX_VALUE ? 0
+                : Math.max(MIN_SWEEP_INTERVAL_MILLIS, Math.min(MAX_SWEEP_INTERVAL_MILLIS, TimeUnit.NANOSECONDS.toMillis(shortest) / 2));
+        this.routerHolder = routerHolder;
+        this.resolver = resolver;
+        this.inboundTag = inboundTag;
+        this.udp = udp;
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        server.bind(bind, 1024);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT, (Handler) key -> accept());
+        this.thread = new Thread(this::loop, "socks5-" + getAddress().getPort());
+        this.thread.setDaemon(true);
+    }
+
+    public Socks5Server start() {
+        thread.start();
+        log.info("socks5 inbound {} listening on {}, udp {}", inboundTag, getAddress(), udp);
+        return this;
+    }
+
+    public InetSocketAddress getAddress() {
+        try {
+            return (InetSocketAddress) server.getLocalAddress();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void loop() {
+        try {
+            while (running) {
+                // sweepIntervalMillis 为 0 时不限时等待
+                selector.select(sweepIntervalMillis);
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    Handler handler = (Handler) key.attachment();
+                    try {
+                        handler.ready(key);
+                    } catch (IOException | RuntimeException e) {
+                        log.debug("socks5 connection failed: {}", e.toString());
+                        handler.close();
+                    }
+                }
+                if (sweepIntervalMillis > 0) {
+                    sweep();
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            log.warn("socks5 selector stopped", e);
+        } finally {
+            for (SelectionKey key : new ArrayList<>(selector.keys())) {
+                ((Handler) key.attachment()).close();
+            }
+            closeQuietly(server);
+            closeQuietly(selector);
+        }
+    }
+
+    /**
+     * 关掉握手或空闲超时的连接，距上次扫描不到一个间隔就跳过
+     */
+    private void sweep() {
+        long now = System.nanoTime();
+        if (now - lastSweep < TimeUnit.MILLISECONDS.toNanos(sweepIntervalMillis)) {
+            return;
+        }
+        lastSweep = now;
+        for (SelectionKey key : new ArrayList<>(selector.keys())) {
+            Object attachment = key.attachment();
+            if (attachment instanceof Connection) {
+                Connection connection = (Connection) attachment;
+                // 客户端和远端两个 key 挂的是同一个 Connection，close 是幂等的
+                if (!connection.closed && connection.expired(now)) {
+                    log.debug("socks5 connection timed out in {}", connection.state);
+                    connection.close();
+                }
+            }
+        }
+    }
+
+    private static long toNanos(long millis) {
+        return millis <= 0 ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    private void accept() throws IOException {
+        SocketChannel client;
+        while ((client = server.accept()) != null) {
+            client.configureBlocking(false);
+            client.socket().setTcpNoDelay(true);
+            Connection connection = new Connection(client);
+            connection.clientKey = client.register(selector, SelectionKey.OP_READ, connection);
+        }
+    }
+
+    /**
+     * 在 selector 线程上执行
+     */
+    private void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    /**
+     * 按路由结果决定去向：非 freedom 出口返回 outbound 本身、target 为 null；
+     * freedom 出口再解析目标地址，解析不到时 target 为 null
+     */
+    private CompletableFuture<Decision> decide(Socks5.Address address) throws ProtocolException {
+        Router router = routerHolder.get();
+        return router.routeAsync(address.host(), address.port(), inboundTag).thenCompose(tag -> {
+            OutboundConfig outbound = router.getConfig().getOutbound(tag);
+            if (outbound == null || !OutboundConfig.FREEDOM.equals(outbound.getProtocol())) {
+                return CompletableFuture.completedFuture(new Decision(tag, outbound, null));
+            }
+            if (address.ip() != null) {
+                try {
+                    InetSocketAddress target = new InetSocketAddress(InetAddress.getByAddress(address.ip()), address.port());
+                    return CompletableFuture.completedFuture(new Decision(tag, outbound, target));
+                } catch (UnknownHostException e) {
+                    return CompletableFuture.completedFuture(new Decision(tag, outbound, null));
+                }
+            }
+            return resolver.resolveAsync(address.domain()).thenApply(addresses -> new Decision(tag, outbound,
+                    addresses.length == 0 ? null : new InetSocketAddress(addresses[0], address.port())));
+        });
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+            // 已经在关闭了
+        }
+    }
+
+    /**
+     * selector key 的 attachment
+     */
+    private interface Handler {
+        void ready(SelectionKey key) throws IOException;
+
+        default void close() {
+        }
+    }
+
+    private enum State {
+        GREETING, REQUEST, RESOLVING, CONNECTING, RELAY, UDP, CLOSING
+    }
+
+    private static final class Decision {
+        private final String tag;
+        private final OutboundConfig outbound;
+        private final InetSocketAddress target;
+
+        Decision(String tag, OutboundConfig outbound, InetSocketAddress target) {
+            this.tag = tag;
+            this.outbound = outbound;
+            this.target = target;
+        }
+
+        String protocol() {
+            return outbound == null ? null : outbound.getProtocol();
+        }
+    }
+
+    /**
+     * 一个客户端 TCP 连接：握手、选 outbound，之后双向转发或作为 UDP ASSOCIATE 的控制连接
+     */
+    private final class Connection implements Handler {
+        private final SocketChannel client;
+        private SelectionKey clientKey;
+        private SocketChannel remote;
+        private SelectionKey remoteKey;
+        private ByteBuffer in;
+        private ByteBuffer out;
+        private State state = State.GREETING;
+        private Flow upstream;
+        private Flow downstream;
+        private UdpAssociation association;
+        private boolean closed;
+        private final long acceptedAt = System.nanoTime();
+        private long lastActivity = acceptedAt;
+
+        Connection(SocketChannel client) {
+            this.client = client;
+            this.in = tcpBuffers.acquire();
+            this.out = tcpBuffers.acquire();
+            this.out.flip();
+        }
+
+        @Override
+        public void ready(SelectionKey key) throws IOException {
+            lastActivity = System.nanoTime();
+            switch (state) {
+                case GREETING:
+                case REQUEST:
+                    if (key.isWritable() && !flushReply()) {
+                        return;
+                    }
+                    if (key.isReadable()) {
+                        if (client.read(in) < 0) {
+                            close();
+                            return;
+                        }
+                        handshake();
+                    }
+                    break;
+                case CONNECTING:
+                    if (key == remoteKey && key.isConnectable()) {
+                        connected();
+                    }
+                    break;
+                case RELAY:
+                    relay(key);
+                    break;
+                case UDP:
+                    if (key.isWritable()) {
+                        flushReply();
+                    }
+                    if (key.isValid() && key.isReadable()) {
+                        // 控制连接上不应该有数据，读到 EOF 就结束这个 association
+                        in.clear();
+                        if (client.read(in) < 0) {
+                            close();
+                        }
+                    }
+                    break;
+                case CLOSING:
+                    if (flushReply()) {
+                        close();
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException(state.name());
+            }
+        }
+
+        private void handshake() throws IOException {
+            in.flip();
+            try {
+                while (state == State.GREETING || state == State.REQUEST) {
+                    boolean progressed = state == State.GREETING ? greeting() : request();
+                    if (!progressed) {
+                        break;
+                    }
+                }
+            } finally {
+                if (state == State.GREETING || state == State.REQUEST || state == State.RESOLVING) {
+                    in.compact();
+                }
+            }
+        }
+
+        /**
+         * VER NMETHODS METHODS，数据不完整返回 false
+         */
+        private boolean greeting() throws IOException {
+            if (in.remaining() < 2) {
+                return false;
+            }
+            int start = in.position();
+            checkVersion(in.get());
+            int methods = in.get() & 0xff;
+            if (in.remaining() < methods) {
+                in.position(start);
+                return false;
+            }
+            boolean noAuth = false;
+            for (int i = 0; i < methods; i++) {
+                noAuth |= in.get() == Socks5.METHOD_NO_AUTH;
+            }
+            if (noAuth) {
+                state = State.REQUEST;
+                reply(new byte[]{Socks5.VERSION, Socks5.METHOD_NO_AUTH});
+            } else {
+                state = State.CLOSING;
+                reply(new byte[]{Socks5.VERSION, Socks5.METHOD_NO_ACCEPTABLE});
+            }
+            return true;
+        }
+
+        /**
+         * VER CMD RSV DST，数据不完整返回 false
+         */
+        private boolean request() throws IOException {
+            if (in.remaining() < 3) {
+                return false;
+            }
+            int start = in.position();
+            checkVersion(in.get());
+            byte command = in.get();
+            in.get();
+            Socks5.Address address = Socks5.readAddress(in);
+            if (address == null) {
+                in.position(start);
+                return false;
+            }
+            if (command == Socks5.CMD_CONNECT) {
+                connect(address);
+            } else if (command == Socks5.CMD_UDP_ASSOCIATE && udp) {
+                associate();
+            } else {
+                fail(Socks5.REP_COMMAND_NOT_SUPPORTED);
+            }
+            return true;
+        }
+
+        private void connect(Socks5.Address address) throws IOException {
+            state = State.RESOLVING;
+            // 决定去向之前先不读客户端，已经收到的早期数据留在 in 里
+            clientKey.interestOps(0);
+            String host = address.host();
+            decide(address).whenComplete((decision, error) -> execute(() -> {
+                if (closed) {
+                    return;
+                }
+                try {
+                    if (error != null) {
+                        log.debug("routing {} failed: {}", host, error.toString());
+                        fail(Socks5.REP_GENERAL_FAILURE);
+                    } else {
+                        dispatch(host, decision);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    log.debug("socks5 connection failed: {}", e.toString());
+                    close();
+                }
+            }));
+        }
+
+        private void dispatch(String host, Decision decision) throws IOException {
+            if (OutboundConfig.BLACKHOLE.equals(decision.protocol())) {
+                blackhole(decision.outbound);
+            } else if (OutboundConfig.FREEDOM.equals(decision.protocol())) {
+                if (decision.target == null) {
+                    fail(Socks5.REP_HOST_UNREACHABLE);
+                    return;
+                }
+                remote = SocketChannel.open();
+                remote.configureBlocking(false);
+                remote.socket().setTcpNoDelay(true);
+                state = State.CONNECTING;
+                boolean connected;
+                try {
+                    connected = remote.connect(decision.target);
+                } catch (IOException e) {
+                    fail(Socks5.REP_CONNECTION_REFUSED);
+                    return;
+                }
+                if (connected) {
+                    remoteKey = remote.register(selector, 0, this);
+                    connected();
+                } else {
+                    remoteKey = remote.register(selector, SelectionKey.OP_CONNECT, this);
+                }
+            } else {
+                log.debug("outbound {} ({}) is not supported locally, rejecting {}", decision.tag, decision.protocol(), host);
+                fail(Socks5.REP_GENERAL_FAILURE);
+            }
+        }
+
+        private void connected() throws IOException {
+            try {
+                remote.finishConnect();
+            } catch (IOException e) {
+                fail(Socks5.REP_CONNECTION_REFUSED);
+                return;
+            }
+            state = State.RELAY;
+            out.clear();
+            out.put(Socks5.VERSION).put(Socks5.REP_SUCCEEDED).put((byte) 0);
+            Socks5.writeAddress(out, (InetSocketAddress) remote.getLocalAddress());
+            out.flip();
+            in.flip();
+            upstream = new Flow(client, remote, in);
+            downstream = new Flow(remote, client, out);
+            upstream.flush();
+            downstream.flush();
+            interest();
+        }
+
+        private void blackhole(OutboundConfig outbound) throws IOException {
+            state = State.CLOSING;
+            out.clear();
+            out.put(Socks5.VERSION).put(Socks5.REP_SUCCEEDED).put((byte) 0);
+            Socks5.writeAddress(out, null);
+            if ("http".equals(outbound.getResponseType())) {
+                out.put(HTTP_403);
+            }
+            out.flip();
+            if (flushReply()) {
+                close();
+            }
+        }
+
+        private void associate() throws IOException {
+            InetSocketAddress local = (InetSocketAddress) client.getLocalAddress();
+            InetSocketAddress peer = (InetSocketAddress) client.getRemoteAddress();
+            association = new UdpAssociation(this, local.getAddress(), peer.getAddress());
+            state = State.UDP;
+            out.clear();
+            out.put(Socks5.VERSION).put(Socks5.REP_SUCCEEDED).put((byte) 0);
+            Socks5.writeAddress(out, association.getAddress());
+            out.flip();
+            flushReply();
+        }
+
+        private void fail(byte reply) throws IOException {
+            state = State.CLOSING;
+            out.clear();
+            out.put(Socks5.VERSION).put(reply).put((byte) 0);
+            Socks5.writeAddress(out, null);
+            out.flip();
+            if (flushReply()) {
+                close();
+            }
+        }
+
+        private void reply(byte[] bytes) throws IOException {
+            out.clear();
+            out.put(bytes);
+            out.flip();
+            if (flushReply() && state == State.CLOSING) {
+                close();
+            }
+        }
+
+        /**
+         * 写出握手阶段的回复，写完返回 true，没写完就等 OP_WRITE
+         */
+        private boolean flushReply() throws IOException {
+            client.write(out);
+            if (out.hasRemaining()) {
+                clientKey.interestOps(SelectionKey.OP_WRITE);
+                return false;
+            }
+            if (clientKey.isValid()) {
+                clientKey.interestOps(state == State.CLOSING ? 0 : SelectionKey.OP_READ);
+            }
+            return true;
+        }
+
+        private void relay(SelectionKey key) throws IOException {
+            boolean fromClient = key == clientKey;
+            if (key.isReadable()) {
+                (fromClient ? upstream : downstream).read();
+            }
+            if (key.isValid() && key.isWritable()) {
+                (fromClient ? downstream : upstream).flush();
+            }
+            if (upstream.done() && downstream.done()) {
+                close();
+            } else {
+                interest();
+            }
+        }
+
+        private void interest() {
+            clientKey.interestOps(upstream.readInterest() | downstream.writeInterest());
+            remoteKey.interestOps(downstream.readInterest() | upstream.writeInterest());
+        }
+
+        /**
+         * 转发和 UDP ASSOCIATE 阶段按空闲时间算，之前的阶段都算握手，从 accept 开始计时
+         */
+        boolean expired(long now) {
+            if (state == State.RELAY || state == State.UDP) {
+                return now - lastActivity > idleTimeoutNanos;
+            }
+            return now - acceptedAt > handshakeTimeoutNanos;
+        }
+
+        private void checkVersion(byte version) throws ProtocolException {
+            if (version != Socks5.VERSION) {
+                throw new ProtocolException("not socks5: " + version);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            closeQuietly(client);
+            closeQuietly(remote);
+            if (association != null) {
+                association.close();
+            }
+            tcpBuffers.release(in);
+            tcpBuffers.release(out);
+        }
+    }
+
+    /**
+     * 一个方向的转发。buffer 始终处于待写出（flip 之后）的状态
+     */
+    private static final class Flow {
+        private final SocketChannel source;
+        private final SocketChannel target;
+        private final ByteBuffer buffer;
+        private boolean eof;
+        private boolean shutdown;
+
+        Flow(SocketChannel source, SocketChannel target, ByteBuffer buffer) {
+            this.source = source;
+            this.target = target;
+            this.buffer = buffer;
+        }
+
+        void read() throws IOException {
+            if (eof || buffer.hasRemaining()) {
+                return;
+            }
+            buffer.clear();
+            int n = source.read(buffer);
+            buffer.flip();
+            if (n < 0) {
+                eof = true;
+            }
+            flush();
+        }
+
+        void flush() throws IOException {
+            if (buffer.hasRemaining()) {
+                target.write(buffer);
+            }
+            if (eof && !buffer.hasRemaining() && !shutdown) {
+                // 半关闭：对端还可以继续往回发
+                target.shutdownOutput();
+                shutdown = true;
+            }
+        }
+
+        int readInterest() {
+            return eof || buffer.hasRemaining() ? 0 : SelectionKey.OP_READ;
+        }
+
+        int writeInterest() {
+            return buffer.hasRemaining() ? SelectionKey.OP_WRITE : 0;
+        }
+
+        boolean done() {
+            return shutdown;
+        }
+    }
+
+    /**
+     * UDP ASSOCIATE：clientSide 收发客户端带 SOCKS 头的包，remoteSide 和目标之间收发裸数据
+     */
+    private final class UdpAssociation implements Handler {
+        private final Connection control;
+        private final InetAddress allowedClient;
+        private final DatagramChannel clientSide;
+        private final DatagramChannel remoteSide;
+        private final ByteBuffer buffer;
+        private SocketAddress clientAddress;
+        private boolean closed;
+
+        UdpAssociation(Connection control, InetAddress bind, InetAddress allowedClient) throws IOException {
+            this.control = control;
+            this.allowedClient = allowedClient;
+            this.clientSide = DatagramChannel.open();
+            this.remoteSide = DatagramChannel.open();
+            this.buffer = udpBuffers.acquire();
+            try {
+                clientSide.bind(new InetSocketAddress(bind, 0));
+                clientSide.configureBlocking(false);
+                clientSide.register(selector, SelectionKey.OP_READ, this);
+                remoteSide.bind(null);
+                remoteSide.configureBlocking(false);
+                remoteSide.register(selector, SelectionKey.OP_READ, this);
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        InetSocketAddress getAddress() throws IOException {
+            return (InetSocketAddress) clientSide.getLocalAddress();
+        }
+
+        @Override
+        public void ready(SelectionKey key) throws IOException {
+            // UDP 上有包就算控制连接还在用
+            control.lastActivity = System.nanoTime();
+            if (key.channel() == clientSide) {
+                fromClient();
+            } else {
+                fromRemote();
+            }
+        }
+
+        private void fromClient() throws IOException {
+            buffer.clear();
+            InetSocketAddress from = (InetSocketAddress) clientSide.receive(buffer);
+            if (from == null || !from.getAddress().equals(allowedClient)) {
+                return;
+            }
+            clientAddress = from;
+            buffer.flip();
+            // RSV(2) FRAG(1)，不支持分片
+            if (buffer.remaining() < 4 || buffer.get(2) != 0) {
+                return;
+            }
+            buffer.position(3);
+            Socks5.Address address;
+            try {
+                address = Socks5.readAddress(buffer);
+            } catch (ProtocolException e) {
+                return;
+            }
+            if (address == null) {
+                return;
+            }
+            CompletableFuture<Decision> decision = decide(address);
+            if (decision.isDone()) {
+                send(buffer, decision.getNow(null));
+                return;
+            }
+            // 要等解析，buffer 马上会被下一个包复用，先拷出负载
+            ByteBuffer payload = ByteBuffer.allocate(buffer.remaining());
+            payload.put(buffer).flip();
+            decision.whenComplete((result, error) -> execute(() -> {
+                try {
+                    send(payload, result);
+                } catch (IOException e) {
+                    log.debug("udp relay failed: {}", e.toString());
+                }
+            }));
+        }
+
+        private void send(ByteBuffer payload, Decision decision) throws IOException {
+            if (!closed && decision != null && decision.target != null) {
+                remoteSide.send(payload, decision.target);
+            }
+        }
+
+        private void fromRemote() throws IOException {
+            buffer.clear();
+            buffer.position(Socks5.MAX_UDP_HEADER);
+            InetSocketAddress from = (InetSocketAddress) remoteSide.receive(buffer);
+            if (from == null || clientAddress == null) {
+                return;
+            }
+            int end = buffer.position();
+            // 头写在数据前面，整个包只发一次
+            int start = Socks5.MAX_UDP_HEADER - 3 - Socks5.addressLength(from);
+            buffer.position(start);
+            buffer.put((byte) 0).put((byte) 0).put((byte) 0);
+            Socks5.writeAddress(buffer, from);
+            buffer.position(start).limit(end);
+            clientSide.send(buffer, clientAddress);
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            closeQuietly(clientSide);
+            closeQuietly(remoteSide);
+            udpBuffers.release(buffer);
+        }
+    }
+}
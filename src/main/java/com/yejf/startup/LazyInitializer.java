@@ -0,0 +1,62 @@
+package com.yejf.startup;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.StringUtils;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * startup.lazy=true 时把 bean 定义都改成懒加载，第一次用到才创建，启动只付必要的代价，
+ * 代价挪到第一次请求上。
+ * <p>
+ * 创建时就有副作用的 bean（监听端口、起线程）要保持 eager：{@link #EAGER_BEANS} 之外，
+ * 可以用 startup.eager-beans（逗号分隔的 bean 名）追加。BeanPostProcessor/BeanFactoryPostProcessor
+ * 不受影响，容器本来就会提前创建它们。
+ */
+public class LazyInitializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+    private static final Logger log = LoggerFactory.getLogger(LazyInitializer.class);
+
+    static final Set<String> EAGER_BEANS = new HashSet<>(Arrays.asList("routerHolder", "routingConfigWatcher", "socks5Server"));
+
+    @Override
+    public void initialize(ConfigurableApplicationContext context) {
+        if (!context.getEnvironment().getProperty("startup.lazy", Boolean.class, false)) {
+            return;
+        }
+        Set<String> eager = new HashSet<>(EAGER_BEANS);
+        eager.addAll(Arrays.asList(StringUtils.trimArrayElements(
+                StringUtils.commaDelimitedListToStringArray(context.getEnvironment().getProperty("startup.eager-beans", "")))));
+        context.addBeanFactoryPostProcessor(new LazyBeans(eager));
+    }
+
+    static class LazyBeans implements BeanFactoryPostProcessor {
+        private final Set<String> eager;
+
+        LazyBeans(Set<String> eager) {
+            this.eager = eager;
+        }
+
+        @Override
+        public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+            int lazy = 0;
+            String[] names = beanFactory.getBeanDefinitionNames();
+            for (String name : names) {
+                BeanDefinition definition = beanFactory.getBeanDefinition(name);
+                if (!eager.contains(name) && definition instanceof AbstractBeanDefinition && !definition.isLazyInit()) {
+                    ((AbstractBeanDefinition) definition).setLazyInit(true);
+                    lazy++;
+                }
+            }
+            log.info("lazy initialization: {} of {} bean definitions made lazy, eager: {}", lazy, names.length, eager);
+        }
+    }
+}
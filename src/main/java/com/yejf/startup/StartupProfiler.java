@@ -0,0 +1,160 @@
+package com.yejf.startup;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+import org.springframework.boot.context.event.ApplicationEnvironmentPreparedEvent;
+import org.springframework.boot.context.event.ApplicationFailedEvent;
+import org.springframework.boot.context.event.ApplicationPreparedEvent;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.boot.context.event.ApplicationStartingEvent;
+import org.springframework.boot.web.context.WebServerInitializedEvent;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.core.env.ConfigurableEnvironment;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * startup.profile=true 时记录启动耗时，应用就绪后打印排序后的 {@link StartupReport}
+ * （startup.report-top 控制行数，默认 20），报告也注册成名为 startupReport 的 bean。
+ * <p>
+ * 通过 META-INF/spring.factories 注册，在 SpringApplication 创建时就挂上；
+ * bean 计时用一个在 refresh 之前加入的 {@link InstantiationAwareBeanPostProcessor}，
+ * 所以其他 BeanPostProcessor 自己的创建时间也算在内。关闭时只多一次属性读取。
+ */
+public class StartupProfiler implements ApplicationListener<ApplicationEvent> {
+    private static final Logger log = LoggerFactory.getLogger(StartupProfiler.class);
+
+    private final StartupReport report = new StartupReport();
+    private long startNanos;
+    private long lastNanos;
+    private boolean enabled = true;
+    private int top;
+
+    @Override
+    public void onApplicationEvent(ApplicationEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (event instanceof ApplicationStartingEvent) {
+            startNanos = System.nanoTime();
+            lastNanos = startNanos;
+        } else if (event instanceof ApplicationEnvironmentPreparedEvent) {
+            ConfigurableEnvironment environment = ((ApplicationEnvironmentPreparedEvent) event).getEnvironment();
+            enabled = environment.getProperty("startup.profile", Boolean.class, false);
+            if (enabled) {
+                top = environment.getProperty("startup.report-top", Integer.class, 20);
+                // JVM 启动到 SpringApplication.run 之间的时间（类加载、main 之前的静态初始化）
+                long uptime = TimeUnit.MILLISECONDS.toNanos(ManagementFactory.getRuntimeMXBean().getUptime());
+                report.phase("jvm start", Math.max(0, uptime - (System.nanoTime() - startNanos)));
+                mark("environment");
+            }
+        } else if (event instanceof ApplicationPreparedEvent) {
+            mark("context prepared");
+            ConfigurableListableBeanFactory beanFactory = ((ApplicationPreparedEvent) event).getApplicationContext().getBeanFactory();
+            beanFactory.addBeanPostProcessor(new BeanTimer(beanFactory));
+            beanFactory.registerSingleton("startupReport", report);
+        } else if (event instanceof ContextRefreshedEvent) {
+            mark("context refresh");
+        } else if (event instanceof WebServerInitializedEvent) {
+            mark("web server start");
+        } else if (event instanceof ApplicationStartedEvent) {
+            mark("started");
+        } else if (event instanceof ApplicationReadyEvent) {
+            mark("runners");
+            report.phase("total", System.nanoTime() - startNanos);
+            log.info(report.format(top));
+            enabled = false;
+        } else if (event instanceof ApplicationFailedEvent) {
+            mark("failed");
+            log.info(report.format(top));
+            enabled = false;
+        }
+    }
+
+    private void mark(String phase) {
+        long now = System.nanoTime();
+        report.phase(phase, now - lastNanos);
+        lastNanos = now;
+    }
+
+    private final class BeanTimer implements InstantiationAwareBeanPostProcessor {
+        private final ConfigurableListableBeanFactory beanFactory;
+        private final ThreadLocal<Deque<Frame>> creating = ThreadLocal.withInitial(ArrayDeque::new);
+
+        BeanTimer(ConfigurableListableBeanFactory beanFactory) {
+            this.beanFactory = beanFactory;
+        }
+
+        @Override
+        public Object postProcessBeforeInstantiation(Class<?> beanClass, String beanName) {
+            creating.get().push(new Frame(beanName, System.nanoTime()));
+            return null;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            Deque<Frame> stack = creating.get();
+            if (!contains(stack, beanName)) {
+                // FactoryBean 产出的对象也会走到这里，但没有对应的 before
+                return bean;
+            }
+            Frame frame;
+            do {
+                // 创建失败的 bean 没有 after，顺带丢掉
+                frame = stack.pop();
+            } while (!frame.name.equals(beanName));
+            long total = System.nanoTime() - frame.start;
+            Frame parent = stack.peek();
+            if (parent != null) {
+                parent.children += total;
+            }
+            report.bean(beanName, owner(beanName), total, total - frame.children);
+            return bean;
+        }
+
+        private boolean contains(Deque<Frame> stack, String beanName) {
+            for (Iterator<Frame> frames = stack.iterator(); frames.hasNext(); ) {
+                if (frames.next().name.equals(beanName)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private String owner(String beanName) {
+            if (!beanFactory.containsBeanDefinition(beanName)) {
+                return beanName;
+            }
+            BeanDefinition definition = beanFactory.getBeanDefinition(beanName);
+            if (definition.getFactoryBeanName() != null) {
+                return definition.getFactoryBeanName();
+            }
+            if (definition.getFactoryMethodName() != null && definition.getBeanClassName() != null) {
+                // static @Bean 方法
+                return definition.getBeanClassName();
+            }
+            return beanName;
+        }
+    }
+
+    private static final class Frame {
+        private final String name;
+        private final long start;
+        private long children;
+
+        Frame(String name, long start) {
+            this.name = name;
+            this.start = start;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.yejf.startup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一次启动的耗时：各阶段、每个 bean、每个配置类（含 auto-configuration）。
+ * <p>
+ * bean 的 self 时间不含它创建依赖所花的时间，配置类的时间是它声明的 bean 的 self 时间之和，
+ * 所以各行加起来不会重复计算。
+ */
+public class StartupReport {
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+    private final Map<String, Bean> beans = new HashMap<>();
+
+    void phase(String name, long nanos) {
+        phases.put(name, nanos);
+    }
+
+    void bean(String name, String owner, long totalNanos, long selfNanos) {
+        beans.put(name, new Bean(name, owner, totalNanos, selfNanos));
+    }
+
+    /**
+     * 阶段名 -> 上一阶段结束到该阶段结束的耗时（纳秒），按发生顺序
+     */
+    public Map<String, Long> getPhases() {
+        return Collections.unmodifiableMap(phases);
+    }
+
+    public Bean getBean(String name) {
+        return beans.get(name);
+    }
+
+    /**
+     * 按 self 时间从大到小
+     */
+    public List<Bean> getBeans() {
+        List<Bean> ranked = new ArrayList<>(beans.values());
+        ranked.sort(Comparator.comparingLong(Bean::getSelfNanos).reversed());
+        return ranked;
+    }
+
+    /**
+     * 配置类 -> 它声明的 bean 的 self 时间之和，从大到小；不是 @Bean 方法创建的 bean 归到自己名下
+     */
+    public Map<String, Long> getOwners() {
+        Map<String, Long> owners = new HashMap<>();
+        for (Bean bean : beans.values()) {
+            owners.merge(bean.owner, bean.selfNanos, Long::sum);
+        }
+        List<Map.Entry<String, Long>> ranked = new ArrayList<>(owners.entrySet());
+        ranked.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        Map<String, Long> sorted = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : ranked) {
+            sorted.put(entry.getKey(), entry.getValue());
+        }
+        return sorted;
+    }
+
+    public String format(int top) {
+        StringBuilder out = new StringBuilder("startup report\n  phases:\n");
+        for (Map.Entry<String, Long> phase : phases.entrySet()) {
+            line(out, phase.getValue(), phase.getKey());
+        }
+        out.append("  top ").append(top).append(" configurations of ").append(getOwners().size()).append(":\n");
+        int rank = 0;
+        for (Map.Entry<String, Long> owner : getOwners().entrySet()) {
+            if (rank++ == top) {
+                break;
+            }
+            line(out, owner.getValue(), owner.getKey());
+        }
+        out.append("  top ").append(top).append(" beans of ").append(beans.size()).append(" (self / total):\n");
+        for (Bean bean : getBeans().subList(0, Math.min(top, beans.size()))) {
+            out.append(String.format("    %8.1f ms / %8.1f ms  %s%n", millis(bean.selfNanos), millis(bean.totalNanos), bean.name));
+        }
+        return out.toString();
+    }
+
+    @Override
+    public String toString() {
+        return format(20);
+    }
+
+    private static void line(StringBuilder out, long nanos, String name) {
+        out.append(String.format("    %8.1f ms  %s%n", millis(nanos), name));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public static class Bean {
+        private final String name;
+        private final String owner;
+        private final long totalNanos;
+        private final long selfNanos;
+
+        Bean(String name, String owner, long totalNanos, long selfNanos) {
+            this.name = name;
+            this.owner = owner;
+            this.totalNanos = totalNanos;
+            this.selfNanos = selfNanos;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * 声明这个 bean 的配置类的 bean 名
+         */
+        public String getOwner() {
+            return owner;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public long getSelfNanos() {
+            return selfNanos;
+        }
+    }
+}
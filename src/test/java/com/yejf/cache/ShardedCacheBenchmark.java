@@ -0,0 +1,96 @@
+package com.yejf.cache;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 通过 Spring {@link Cache} 接口比较单个 CaffeineCacheManager 和 {@link ShardedCacheManager}，
+ * 两边大小上限相同，key 空间是上限的 4 倍，写入会不停触发淘汰。
+ * <p>
+ * main 依次用 1..64 个线程跑（-t 也可以单独指定），最后打印每个线程数下的总吞吐。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ShardedCacheBenchmark {
+    static final int MAXIMUM_SIZE = 1 << 16;
+    static final int KEYS = MAXIMUM_SIZE * 4;
+
+    @Param({"caffeine", "sharded"})
+    public String manager;
+
+    @Param({"64"})
+    public int shards;
+
+    private Cache cache;
+    private String[] keys;
+
+    @Setup
+    public void setUp() {
+        if (manager.equals("sharded")) {
+            cache = new ShardedCacheManager(shards, MAXIMUM_SIZE, "address").getCache("address");
+        } else {
+            CaffeineCacheManager caffeine = new CaffeineCacheManager("address");
+            caffeine.setCaffeine(Caffeine.newBuilder().maximumSize(MAXIMUM_SIZE).recordStats());
+            cache = caffeine.getCache("address");
+        }
+        keys = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = "name-" + i;
+            if (i < MAXIMUM_SIZE) {
+                cache.put(keys[i], "hi " + keys[i]);
+            }
+        }
+    }
+
+    @Benchmark
+    public void put() {
+        String key = keys[ThreadLocalRandom.current().nextInt(KEYS)];
+        cache.put(key, key);
+    }
+
+    /**
+     * 90% 读 10% 写
+     */
+    @Benchmark
+    public Object mixed() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String key = keys[random.nextInt(KEYS)];
+        if (random.nextInt(10) == 0) {
+            cache.put(key, key);
+            return key;
+        }
+        return cache.get(key);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        List<String> lines = new ArrayList<>();
+        for (int threads = 1; threads <= 64; threads *= 2) {
+            Collection<RunResult> results = new Runner(new OptionsBuilder()
+                    .include(ShardedCacheBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build()).run();
+            for (RunResult result : results) {
+                lines.add(String.format("%2d threads  %-8s %-8s %10.2f ops/us", threads,
+                        result.getParams().getParam("manager"), result.getParams().getBenchmark().replaceAll(".*\\.", ""),
+                        result.getPrimaryResult().getScore()));
+            }
+        }
+        lines.forEach(System.out::println);
+    }
+}
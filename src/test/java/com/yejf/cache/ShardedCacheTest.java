@@ -0,0 +1,123 @@
+package com.yejf.cache;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.CacheWriter;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.junit.Test;
+import org.springframework.cache.Cache;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.*;
+
+public class ShardedCacheTest {
+
+    @Test
+    public void shardCountIsRoundedUp() {
+        assertEquals(1, new ShardedCacheManager(1, 100).getShards());
+        assertEquals(8, new ShardedCacheManager(5, 100).getShards());
+        assertEquals(64, new ShardedCacheManager(64, 100).getShards());
+    }
+
+    @Test
+    public void keysSpreadOverShards() {
+        ShardedCache cache = (ShardedCache) new ShardedCacheManager(16, 100_000, "address").getCache("address");
+        Set<Integer> used = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            String key = "name-" + i;
+            int shard = cache.shardOf(key);
+            assertEquals(shard, cache.shardOf(key));
+            used.add(shard);
+            cache.put(key, "hi " + i);
+        }
+        assertEquals(16, used.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("hi " + i, cache.get("name-" + i, String.class));
+        }
+    }
+
+    @Test
+    public void statsArePerShard() {
+        ShardedCache cache = (ShardedCache) new ShardedCacheManager(4, 1000, "address").getCache("address");
+        cache.put("a", "1");
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals("3", cache.get("c", () -> "3"));
+
+        long hits = 0;
+        for (CacheStats stats : cache.getShardStats()) {
+            hits += stats.hitCount();
+        }
+        assertEquals(1, hits);
+        assertEquals(1, cache.getStats().hitCount());
+        assertEquals(2, cache.getStats().missCount());
+        assertEquals(1, cache.getShardStats().get(cache.shardOf("a")).hitCount());
+    }
+
+    @Test
+    public void sizeLimitIsApproximate() {
+        ShardedCache cache = (ShardedCache) new ShardedCacheManager(8, 800, "address").getCache("address");
+        for (int i = 0; i < 10_000; i++) {
+            cache.put(i, i);
+        }
+        for (com.github.benmanes.caffeine.cache.Cache<Object, Object> shard : cache.getNativeCache()) {
+            shard.cleanUp();
+            assertTrue(shard.estimatedSize() <= 100);
+        }
+        assertTrue(cache.estimatedSize() <= 800);
+        assertTrue(cache.estimatedSize() > 700);
+    }
+
+    @Test
+    public void evictAndClear() {
+        ShardedCache cache = (ShardedCache) new ShardedCacheManager(4, 1000, "address").getCache("address");
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.evict("a");
+        assertNull(cache.get("a"));
+        assertEquals("2", cache.putIfAbsent("b", "3").get());
+        cache.clear();
+        assertNull(cache.get("b"));
+    }
+
+    @Test
+    public void namedCachesAreFixed() {
+        ShardedCacheManager manager = new ShardedCacheManager(2, 100, "address");
+        assertNull(manager.getCache("other"));
+        assertNotNull(new ShardedCacheManager(2, 100).getCache("other"));
+    }
+
+    @Test
+    public void loaderAndWriterAreShared() {
+        Map<Object, Object> store = new ConcurrentHashMap<>();
+        store.put("stored", "from store");
+        ShardedCacheManager manager = new ShardedCacheManager(4, 1000, "address");
+        manager.setCacheLoader(new CacheLoader<Object, Object>() {
+            @Override
+            public Object load(Object key) {
+                return store.get(key);
+            }
+        });
+        manager.setCacheWriter(new CacheWriter<Object, Object>() {
+            @Override
+            public void write(Object key, Object value) {
+                store.put(key, value);
+            }
+
+            @Override
+            public void delete(Object key, Object value, RemovalCause cause) {
+            }
+        });
+        Cache cache = manager.getCache("address");
+
+        assertEquals("from store", cache.get("stored").get());
+        for (int i = 0; i < 100; i++) {
+            cache.put("k" + i, i);
+        }
+        assertEquals(101, store.size());
+    }
+}
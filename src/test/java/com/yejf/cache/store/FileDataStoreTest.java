@@ -0,0 +1,75 @@
+package com.yejf.cache.store;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class FileDataStoreTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void loadsWhatWasWritten() throws IOException {
+        try (FileDataStore store = new FileDataStore(folder.getRoot().toPath().resolve("store.log"))) {
+            store.writeAll(entries("a", "1", "b", "两"));
+            store.writeAll(entries("a", "3"));
+
+            Map<String, String> values = store.loadAll(Arrays.asList("a", "b", "missing"));
+            assertEquals(entries("a", "3", "b", "两"), values);
+            assertEquals(2, store.size());
+        }
+    }
+
+    @Test
+    public void reopenReplaysLog() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("store.log");
+        try (FileDataStore store = new FileDataStore(file)) {
+            store.writeAll(entries("a", "1", "b", "2"));
+            store.writeAll(entries("b", "3"));
+        }
+        try (FileDataStore store = new FileDataStore(file)) {
+            assertEquals(entries("a", "1", "b", "3"), store.loadAll(Arrays.asList("a", "b")));
+        }
+    }
+
+    @Test
+    public void truncatedTailIsDropped() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("store.log");
+        long complete;
+        try (FileDataStore store = new FileDataStore(file)) {
+            store.writeAll(entries("a", "1"));
+            complete = file.toFile().length();
+            store.writeAll(entries("b", "2"));
+        }
+        // 模拟最后一批写了一半就崩溃
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(file.toFile().length() - 1);
+        }
+        try (FileDataStore store = new FileDataStore(file)) {
+            assertEquals(entries("a", "1"), store.loadAll(Arrays.asList("a", "b")));
+            assertEquals(complete, file.toFile().length());
+            store.writeAll(entries("c", "3"));
+        }
+        try (FileDataStore store = new FileDataStore(file)) {
+            assertEquals(entries("a", "1", "c", "3"), store.loadAll(Arrays.asList("a", "b", "c")));
+        }
+    }
+
+    static Map<String, String> entries(String... keyValues) {
+        Map<String, String> entries = new HashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            entries.put(keyValues[i], keyValues[i + 1]);
+        }
+        return entries;
+    }
+}
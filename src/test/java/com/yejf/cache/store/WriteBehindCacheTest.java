@@ -0,0 +1,316 @@
+package com.yejf.cache.store;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+
+import static com.yejf.cache.store.FileDataStoreTest.entries;
+import static org.junit.Assert.*;
+
+public class WriteBehindCacheTest {
+    private static final long TIMEOUT = 5_000;
+
+    private final GatedStore store = new GatedStore();
+    private WriteBehindCacheWriter writer;
+    private ReadThroughCacheLoader loader;
+
+    @After
+    public void tearDown() {
+        store.open();
+        if (loader != null) {
+            loader.close();
+        }
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    @Test
+    public void coalescesAndFlushesOnSize() throws Exception {
+        writer = new WriteBehindCacheWriter(store, 3, TimeUnit.HOURS.toMillis(1), 100, TIMEOUT);
+        writer.write("a", "1");
+        writer.write("a", "2");
+        writer.write("b", "1");
+        assertTrue(store.writes.isEmpty());
+
+        writer.write("c", "1");
+        await(() -> store.writes.size() == 1);
+        assertEquals(entries("a", "2", "b", "1", "c", "1"), store.writes.get(0));
+        assertEquals(1, writer.getCoalesced());
+        assertEquals(4, writer.getWrites());
+    }
+
+    @Test
+    public void flushesOnInterval() throws Exception {
+        writer = new WriteBehindCacheWriter(store, 100, 50, 100, TIMEOUT);
+        writer.write("a", "1");
+        await(() -> "1".equals(store.data.get("a")));
+        assertEquals(0, writer.getPendingCount());
+    }
+
+    @Test
+    public void splitsIntoBatches() {
+        writer = new WriteBehindCacheWriter(store, 2, TimeUnit.HOURS.toMillis(1), 100, TIMEOUT);
+        store.close();
+        for (int i = 0; i < 5; i++) {
+            writer.write("k" + i, "v");
+        }
+        store.open();
+        assertTrue(writer.flush());
+        assertEquals(5, store.data.size());
+        for (Map<String, String> batch : store.writes) {
+            assertTrue(batch.size() <= 2);
+        }
+    }
+
+    @Test
+    public void blocksWhenFull() throws Exception {
+        writer = new WriteBehindCacheWriter(store, 2, TimeUnit.HOURS.toMillis(1), 2, TIMEOUT);
+        store.close();
+        writer.write("a", "1");
+        writer.write("b", "1");
+        await(() -> store.blocked.getCount() == 0);
+
+        Thread third = new Thread(() -> writer.write("c", "1"));
+        third.start();
+        third.join(200);
+        assertTrue(third.isAlive());
+        assertEquals(1, writer.getBlocked());
+        // 正在写出的值仍然可读
+        assertEquals("1", writer.getPending("a"));
+
+        store.open();
+        third.join(5_000);
+        assertFalse(third.isAlive());
+        assertTrue(writer.flush());
+        assertEquals(entries("a", "1", "b", "1", "c", "1"), store.data);
+    }
+
+    @Test
+    public void rejectsWritesWhenStoreStaysDown() throws Exception {
+        writer = new WriteBehindCacheWriter(store, 2, TimeUnit.HOURS.toMillis(1), 2, 50);
+        Cache<Object, Object> cache = Caffeine.newBuilder().writer(writer).build();
+        cache.put("c", "1");
+        assertTrue(writer.flush());
+        store.close();
+        cache.put("a", "1");
+        cache.put("b", "1");
+        await(() -> store.blocked.getCount() == 0);
+
+        long start = System.nanoTime();
+        try {
+            cache.put("c", "2");
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+        }
+        assertEquals(1, writer.getRejected());
+        // 写入失败时缓存也不更新，不会出现缓存是新值、存储是旧值
+        assertEquals("1", cache.getIfPresent("c"));
+        assertEquals("1", store.data.get("c"));
+
+        store.open();
+        assertTrue(writer.flush());
+        assertEquals(entries("a", "1", "b", "1", "c", "1"), store.data);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonStringValues() {
+        writer = new WriteBehindCacheWriter(store, 100, TimeUnit.HOURS.toMillis(1), 100, TIMEOUT);
+        writer.write("a", 1);
+    }
+
+    @Test
+    public void loadTimesOut() throws Exception {
+        loader = new ReadThroughCacheLoader(store, null, 100, 50);
+        store.close();
+        try {
+            loader.load("a");
+            fail();
+        } catch (TimeoutException e) {
+            assertEquals(1, loader.getTimeouts());
+        }
+        LoadingCache<Object, Object> cache = Caffeine.newBuilder().build(loader);
+        try {
+            cache.get("b");
+            fail();
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        store.open();
+    }
+
+    @Test
+    public void failedFlushIsRetried() {
+        writer = new WriteBehindCacheWriter(store, 100, TimeUnit.HOURS.toMillis(1), 100, TIMEOUT);
+        writer.write("a", "1");
+        store.fail = true;
+        assertFalse(writer.flush());
+        writer.write("b", "2");
+        assertEquals(2, writer.getPendingCount());
+        assertEquals(1, writer.getFailures());
+
+        store.fail = false;
+        assertTrue(writer.flush());
+        assertEquals(entries("a", "1", "b", "2"), store.data);
+    }
+
+    @Test
+    public void concurrentLoadsAreBatched() throws Exception {
+        store.data.putAll(entries("a", "1", "b", "2", "c", "3"));
+        loader = new ReadThroughCacheLoader(store, null, 100, TIMEOUT);
+        store.close();
+
+        List<Thread> threads = new ArrayList<>();
+        Map<String, Object> results = new ConcurrentHashMap<>();
+        for (String key : Arrays.asList("a", "b", "c", "missing")) {
+            Thread thread = new Thread(() -> {
+                try {
+                    Object value = loader.load(key);
+                    results.put(key, value == null ? "null" : value);
+                } catch (Exception e) {
+                    results.put(key, e);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+            if (threads.size() == 1) {
+                // 第一个请求卡在存储里，其余的排队
+                await(() -> store.blocked.getCount() == 0);
+            }
+        }
+        await(() -> loader.getQueued() == 3);
+        store.open();
+        for (Thread thread : threads) {
+            thread.join(5_000);
+        }
+
+        assertEquals(2, store.loads.size());
+        assertEquals(3, store.loads.get(1).size());
+        assertEquals(entries("a", "1", "b", "2", "c", "3", "missing", "null"), results);
+    }
+
+    @Test
+    public void readsSeePendingWrites() throws Exception {
+        writer = new WriteBehindCacheWriter(store, 100, TimeUnit.HOURS.toMillis(1), 100, TIMEOUT);
+        loader = new ReadThroughCacheLoader(store, writer, 100, TIMEOUT);
+        LoadingCache<Object, Object> cache = Caffeine.newBuilder().writer(writer).build(loader);
+
+        cache.put("a", "1");
+        cache.invalidate("a");
+        assertEquals("1", cache.get("a"));
+        assertTrue(store.loads.isEmpty());
+
+        writer.flush();
+        cache.invalidateAll();
+        store.data.put("b", "2");
+        assertEquals(entries("a", "1", "b", "2"), new HashMap<>(cache.getAll(Arrays.asList("a", "b", "c"))));
+        assertEquals(Collections.singletonList(3), sizes(store.loads));
+    }
+
+    @Test
+    public void computedValuesAreNotWrittenBack() {
+        writer = new WriteBehindCacheWriter(store, 100, TimeUnit.HOURS.toMillis(1), 100, TIMEOUT);
+        loader = new ReadThroughCacheLoader(store, writer, 100, TIMEOUT);
+        store.data.put("stored", "from store");
+        ReadThroughCaffeineCache cache = new ReadThroughCaffeineCache("address",
+                Caffeine.newBuilder().maximumSize(100).writer(writer).build(loader), true);
+
+        assertEquals("from store", cache.get("stored", () -> "computed"));
+        assertEquals("hi x", cache.get("x", () -> "hi x"));
+        assertEquals("hi x", cache.get("x", String.class));
+        assertEquals(0, writer.getWrites());
+
+        cache.put("x", "updated");
+        assertEquals("updated", writer.getPending("x"));
+    }
+
+    private static List<Integer> sizes(List<Collection<String>> loads) {
+        List<Integer> sizes = new ArrayList<>();
+        for (Collection<String> load : loads) {
+            sizes.add(load.size());
+        }
+        return sizes;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue("timed out", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * 内存里的存储，可以让读写卡住或者失败
+     */
+    private static class GatedStore implements DataStore {
+        final Map<String, String> data = new ConcurrentHashMap<>();
+        final List<Map<String, String>> writes = new CopyOnWriteArrayList<>();
+        final List<Collection<String>> loads = new CopyOnWriteArrayList<>();
+        volatile boolean fail;
+        /** 有调用卡在 gate 上时为 0 */
+        volatile CountDownLatch blocked = new CountDownLatch(1);
+        private volatile CountDownLatch gate = new CountDownLatch(0);
+
+        void close() {
+            blocked = new CountDownLatch(1);
+            gate = new CountDownLatch(1);
+        }
+
+        void open() {
+            gate.countDown();
+        }
+
+        @Override
+        public Map<String, String> loadAll(Collection<String> keys) throws IOException {
+            pass();
+            loads.add(new ArrayList<>(keys));
+            Map<String, String> values = new HashMap<>();
+            for (String key : keys) {
+                if (data.containsKey(key)) {
+                    values.put(key, data.get(key));
+                }
+            }
+            return values;
+        }
+
+        @Override
+        public void writeAll(Map<String, String> entries) throws IOException {
+            pass();
+            if (fail) {
+                throw new IOException("store unavailable");
+            }
+            writes.add(new LinkedHashMap<>(entries));
+            data.putAll(entries);
+        }
+
+        private void pass() throws IOException {
+            blocked.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.yejf.load;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按分布和命中率挑请求的 name 参数。
+ * 命中的请求从 {@link #count()} 个固定 key 里选，未命中的请求每次用一个新 key。
+ */
+class Keys {
+    private final int count;
+    private final double hitRatio;
+    /** zipf 的累积分布，uniform 时为 null */
+    private final double[] cdf;
+    private final AtomicLong misses = new AtomicLong();
+
+    Keys(LoadOptions options) {
+        this.count = options.keys;
+        this.hitRatio = options.hitRatio;
+        switch (options.distribution) {
+            case "uniform":
+                cdf = null;
+                break;
+            case "zipf":
+                cdf = zipf(count, options.zipfExponent);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown distribution: " + options.distribution);
+        }
+    }
+
+    int count() {
+        return count;
+    }
+
+    String key(int index) {
+        return "key-" + index;
+    }
+
+    String next() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextDouble() >= hitRatio) {
+            return "miss-" + misses.incrementAndGet();
+        }
+        if (cdf == null) {
+            return key(random.nextInt(count));
+        }
+        int index = Arrays.binarySearch(cdf, random.nextDouble());
+        return key(Math.min(count - 1, index < 0 ? -index - 1 : index));
+    }
+
+    private static double[] zipf(int count, double exponent) {
+        double[] cdf = new double[count];
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += 1 / Math.pow(i + 1, exponent);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < count; i++) {
+            cdf[i] /= sum;
+        }
+        return cdf;
+    }
+}
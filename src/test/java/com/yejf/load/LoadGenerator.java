@@ -0,0 +1,126 @@
+package com.yejf.load;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 闭环压测 /sayHi：{@link LoadOptions#concurrency} 个线程各自串行发请求，每个线程按固定间隔排好计划时间，
+ * 合起来是 {@link LoadOptions#rate}。
+ * <p>
+ * 服务变慢时后面的请求会晚发（coordinated omission），所以延迟从计划时间算起，
+ * 排队等待也计入；从实际发出算起的服务时间另外记一份。
+ */
+class LoadGenerator {
+    private static final long HIGHEST_TRACKABLE = TimeUnit.MINUTES.toNanos(1);
+
+    private final String baseUrl;
+    private final LoadOptions options;
+    private final Keys keys;
+
+    LoadGenerator(String baseUrl, LoadOptions options, Keys keys) {
+        this.baseUrl = baseUrl;
+        this.options = options;
+        this.keys = keys;
+    }
+
+    /**
+     * 把所有会命中的 key 请求一遍
+     */
+    void prime() throws IOException {
+        for (int i = 0; i < keys.count(); i++) {
+            request(keys.key(i));
+        }
+    }
+
+    LoadResult run(int seconds) throws InterruptedException {
+        long intervalNanos = TimeUnit.SECONDS.toNanos(options.concurrency) / options.rate;
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        List<Worker> workers = new ArrayList<>();
+        for (int i = 0; i < options.concurrency; i++) {
+            // 错开各线程的计划时间，总体均匀
+            Worker worker = new Worker(start + intervalNanos * i / options.concurrency, end, intervalNanos);
+            worker.setName("load-" + i);
+            worker.start();
+            workers.add(worker);
+        }
+        Histogram latency = histogram();
+        Histogram service = histogram();
+        long errors = 0;
+        for (Worker worker : workers) {
+            worker.join();
+            latency.add(worker.latency);
+            service.add(worker.service);
+            errors += worker.errors.get();
+        }
+        return new LoadResult(latency, service, errors, System.nanoTime() - start);
+    }
+
+    private int request(String name) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + "/sayHi?name=" + URLEncoder.encode(name, "UTF-8")).openConnection();
+        connection.setConnectTimeout(5_000);
+        connection.setReadTimeout(30_000);
+        int status = connection.getResponseCode();
+        // 读完响应，连接才会回到 keep-alive 池里
+        try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            if (in != null) {
+                byte[] buffer = new byte[256];
+                while (in.read(buffer) >= 0) {
+                    // drain
+                }
+            }
+        }
+        return status;
+    }
+
+    private static Histogram histogram() {
+        return new Histogram(HIGHEST_TRACKABLE, 3);
+    }
+
+    private final class Worker extends Thread {
+        private final long first;
+        private final long end;
+        private final long interval;
+        private final Histogram latency = histogram();
+        private final Histogram service = histogram();
+        private final AtomicLong errors = new AtomicLong();
+
+        Worker(long first, long end, long interval) {
+            this.first = first;
+            this.end = end;
+            this.interval = interval;
+        }
+
+        @Override
+        public void run() {
+            for (long intended = first; intended < end; intended += interval) {
+                long now;
+                while ((now = System.nanoTime()) < intended) {
+                    LockSupport.parkNanos(intended - now);
+                }
+                try {
+                    if (request(keys.next()) != 200) {
+                        errors.incrementAndGet();
+                        continue;
+                    }
+                } catch (IOException e) {
+                    errors.incrementAndGet();
+                    continue;
+                }
+                long done = System.nanoTime();
+                latency.recordValue(Math.min(HIGHEST_TRACKABLE, done - intended));
+                service.recordValue(Math.min(HIGHEST_TRACKABLE, done - now));
+            }
+        }
+    }
+}
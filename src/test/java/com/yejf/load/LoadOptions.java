@@ -0,0 +1,64 @@
+package com.yejf.load;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 压测参数，都从 load.* 系统属性读，例如 {@code mvn -Pload verify -Dload.rate=5000}
+ */
+public class LoadOptions {
+    /** 并发连接数，每个连接一个线程 */
+    final int concurrency = Integer.getInteger("load.concurrency", 8);
+    /** 目标总请求速率（每秒），按计划时间发请求，延迟从计划时间算起 */
+    final int rate = Integer.getInteger("load.rate", 400);
+    final int warmupSeconds = Integer.getInteger("load.warmup", 2);
+    final int durationSeconds = Integer.getInteger("load.duration", 5);
+    /** 会命中缓存的 key 个数，压测前都请求一遍 */
+    final int keys = Integer.getInteger("load.keys", 1000);
+    /** uniform 或 zipf */
+    final String distribution = System.getProperty("load.distribution", "uniform");
+    final double zipfExponent = Double.parseDouble(System.getProperty("load.zipf-exponent", "1.0"));
+    /** 请求落在已缓存 key 上的比例，其余请求用从没出现过的 key */
+    final double hitRatio = Double.parseDouble(System.getProperty("load.hit-ratio", "0.9"));
+    /** 允许比基线差多少（0.5 = 50%） */
+    final double tolerance = Double.parseDouble(System.getProperty("load.tolerance", "1.0"));
+    /** 延迟额外允许的绝对误差，亚毫秒的基线只按比例比较太敏感 */
+    final double slackMillis = Double.parseDouble(System.getProperty("load.slack-millis", "5"));
+    /** 机器的名字，基线只和同一台机器上的结果比较；CI 的主机名不固定时用 load.host 指定一个固定的机型名 */
+    final String host = System.getProperty("load.host", hostName());
+    /** 基线目录，默认是仓库里的 src/test/load-baselines，录下的基线随代码提交 */
+    final String baselineDir = System.getProperty("load.baseline-dir", "src/test/load-baselines");
+    /** 每台机器一份 */
+    final String baseline = System.getProperty("load.baseline",
+            Paths.get(baselineDir, "sayhi-" + host + ".json").toString());
+    final String report = System.getProperty("load.report", "target/load-report.json");
+    /** 为 true 时把这次的结果写成新的基线 */
+    final boolean updateBaseline = Boolean.getBoolean("load.update-baseline");
+
+    /**
+     * 决定结果是否可比的参数，写进报告和基线
+     */
+    Map<String, Object> workload() {
+        Map<String, Object> workload = new LinkedHashMap<>();
+        workload.put("concurrency", concurrency);
+        workload.put("rate", rate);
+        workload.put("keys", keys);
+        workload.put("distribution", distribution);
+        if ("zipf".equals(distribution)) {
+            workload.put("zipfExponent", zipfExponent);
+        }
+        workload.put("hitRatio", hitRatio);
+        return workload;
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "localhost";
+        }
+    }
+}
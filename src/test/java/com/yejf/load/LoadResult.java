@@ -0,0 +1,148 @@
+package com.yejf.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一轮压测的结果，以及和基线的比较。
+ * 报告是 JSON，基线就是一份之前的报告。
+ */
+class LoadResult {
+    static final double[] PERCENTILES = {50, 99, 99.9};
+
+    private static final ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private final Histogram latency;
+    private final Histogram service;
+    private final long errors;
+    private final long elapsedNanos;
+
+    LoadResult(Histogram latency, Histogram service, long errors, long elapsedNanos) {
+        this.latency = latency;
+        this.service = service;
+        this.errors = errors;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    long getRequests() {
+        return latency.getTotalCount();
+    }
+
+    long getErrors() {
+        return errors;
+    }
+
+    double getThroughput() {
+        return latency.getTotalCount() / (elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /**
+     * 从计划时间算起的延迟（已修正 coordinated omission），单位毫秒
+     */
+    double latencyMillis(double percentile) {
+        return millis(latency.getValueAtPercentile(percentile));
+    }
+
+    Map<String, Object> toReport(LoadOptions options) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("host", options.host);
+        report.put("workload", options.workload());
+        report.put("durationSeconds", options.durationSeconds);
+        report.put("requests", getRequests());
+        report.put("errors", errors);
+        report.put("throughput", getThroughput());
+        report.put("latencyMillis", percentiles(latency));
+        report.put("serviceTimeMillis", percentiles(service));
+        return report;
+    }
+
+    void write(LoadOptions options, File file) throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("cannot create " + dir);
+        }
+        mapper.writeValue(file, toReport(options));
+    }
+
+    /**
+     * 延迟的完整分布（毫秒），可以用 HdrHistogram 的 plotter 画图
+     */
+    void writeDistribution(File file) throws IOException {
+        try (PrintStream out = new PrintStream(file, "UTF-8")) {
+            latency.outputPercentileDistribution(out, 1_000_000.0);
+        }
+    }
+
+    /**
+     * 别的机器上录的基线不可比
+     */
+    static boolean sameHost(LoadOptions options, JsonNode baseline) {
+        return options.host.equals(baseline.path("host").asText());
+    }
+
+    /**
+     * workload 不同的结果不可比
+     */
+    static boolean sameWorkload(LoadOptions options, JsonNode baseline) {
+        return mapper.valueToTree(options.workload()).equals(baseline.path("workload"));
+    }
+
+    /**
+     * 和基线比较，返回超出容忍范围的项
+     */
+    List<String> compare(LoadOptions options, JsonNode baseline) {
+        List<String> regressions = new ArrayList<>();
+        double limit = 1 + options.tolerance;
+        for (double percentile : PERCENTILES) {
+            String name = name(percentile);
+            double expected = baseline.path("latencyMillis").path(name).asDouble();
+            double actual = latencyMillis(percentile);
+            if (actual > expected * limit + options.slackMillis) {
+                regressions.add(String.format("%s latency %.3f ms exceeds baseline %.3f ms", name, actual, expected));
+            }
+        }
+        double expected = baseline.path("throughput").asDouble();
+        if (getThroughput() * limit < expected) {
+            regressions.add(String.format("throughput %.1f/s is below baseline %.1f/s", getThroughput(), expected));
+        }
+        return regressions;
+    }
+
+    static JsonNode read(File file) throws IOException {
+        return mapper.readTree(file);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d requests, %d errors, %.1f req/s, latency p50/p99/p999 %.3f/%.3f/%.3f ms",
+                getRequests(), errors, getThroughput(), latencyMillis(50), latencyMillis(99), latencyMillis(99.9));
+    }
+
+    private static Map<String, Object> percentiles(Histogram histogram) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (double percentile : PERCENTILES) {
+            values.put(name(percentile), millis(histogram.getValueAtPercentile(percentile)));
+        }
+        values.put("max", millis(histogram.getMaxValue()));
+        return values;
+    }
+
+    private static String name(double percentile) {
+        return "p" + (percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile).replace(".", ""));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,63 @@
+package com.yejf.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 在随机端口上启动应用，用 {@link LoadGenerator} 压 /sayHi，报告写到 load.report（默认 target/load-report.json，
+ * 旁边的 .hgrm 是完整延迟分布）。
+ * <p>
+ * 不在默认构建里跑，用 {@code mvn -Pload verify} 执行。基线按机器保存（默认 src/test/load-baselines/sayhi-&lt;host&gt;.json），
+ * 只在 load.update-baseline=true 时录下或覆盖基线；其他时候找不到同一台机器、同一个 workload 的基线，
+ * 或者比基线差出 load.tolerance，都算失败。
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class SayHiLoadIT {
+    private static final Logger log = LoggerFactory.getLogger(SayHiLoadIT.class);
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    public void latencyWithinBaseline() throws Exception {
+        LoadOptions options = new LoadOptions();
+        LoadGenerator generator = new LoadGenerator("http://127.0.0.1:" + port, options, new Keys(options));
+        generator.prime();
+        log.info("warmup: {}", generator.run(options.warmupSeconds));
+        LoadResult result = generator.run(options.durationSeconds);
+        log.info("result: {}", result);
+
+        File report = new File(options.report);
+        result.write(options, report);
+        result.writeDistribution(new File(report.getAbsoluteFile().getParentFile(), report.getName().replaceFirst("\\.json$", "") + ".hgrm"));
+        assertEquals(0, result.getErrors());
+
+        File baseline = new File(options.baseline);
+        if (options.updateBaseline) {
+            result.write(options, baseline);
+            log.info("baseline {} recorded", baseline);
+            return;
+        }
+        assertTrue("no baseline " + baseline + " for host " + options.host
+                + ", record one with -Dload.update-baseline=true", baseline.isFile());
+        JsonNode expected = LoadResult.read(baseline);
+        assertTrue("baseline " + baseline + " was recorded on " + expected.path("host").asText() + ", not " + options.host,
+                LoadResult.sameHost(options, expected));
+        assertTrue("workload " + options.workload() + " differs from baseline " + expected.path("workload")
+                + ", re-record with -Dload.update-baseline=true", LoadResult.sameWorkload(options, expected));
+        List<String> regressions = result.compare(options, expected);
+        assertTrue("regressed against " + baseline + ": " + regressions, regressions.isEmpty());
+    }
+}
@@ -0,0 +1,115 @@
+package com.yejf.mockito;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PersonStore 与 List&lt;Person&gt; 的扫描吞吐对比，main 里顺带打印每条记录的内存占用
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PersonStoreBenchmark {
+
+    @Param({"1000000"})
+    int records;
+
+    List<Person> list;
+    PersonStore store;
+
+    @Setup
+    public void setUp() {
+        list = new ArrayList<>(records);
+        store = new PersonStore(records);
+        for (int i = 0; i < records; i++) {
+            String name = "person-" + i;
+            list.add(new Person(name));
+            store.add(name);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        store.close();
+    }
+
+    @Benchmark
+    public long scanListLength() {
+        long total = 0;
+        for (Person person : list) {
+            total += person.getName().length();
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long scanStoreLength() {
+        long total = 0;
+        for (int id = 0, n = store.size(); id < n; id++) {
+            total += store.nameLength(id);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long scanListName() {
+        long total = 0;
+        for (Person person : list) {
+            total += person.getName().hashCode();
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long scanStoreName() {
+        long[] total = new long[1];
+        store.forEach(0, store.size(), p -> total[0] += p.getName().hashCode());
+        return total[0];
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        footprint(5_000_000);
+        new Runner(new OptionsBuilder()
+                .include(PersonStoreBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    /**
+     * 粗略比较每条记录的内存：List 看堆增量，PersonStore 看已写入的堆外字节
+     */
+    private static void footprint(int records) {
+        long before = usedHeap();
+        List<Person> list = new ArrayList<>(records);
+        for (int i = 0; i < records; i++) {
+            list.add(new Person("person-" + i));
+        }
+        long listBytes = usedHeap() - before;
+
+        PersonStore store = new PersonStore(records);
+        for (int i = 0; i < records; i++) {
+            store.add("person-" + i);
+        }
+        long storeBytes = (long) store.size() * (Long.BYTES + Integer.BYTES) + store.nameBytes();
+
+        System.out.printf("List<Person>: %.1f bytes/record (heap)%n", (double) listBytes / list.size());
+        System.out.printf("PersonStore:  %.1f bytes/record (off-heap, %d bytes allocated)%n",
+                (double) storeBytes / store.size(), store.offHeapBytes());
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
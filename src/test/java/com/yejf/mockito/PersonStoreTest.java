@@ -0,0 +1,165 @@
+package com.yejf.mockito;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PersonStoreTest {
+
+    @Test
+    public void addAndGet() {
+        PersonStore store = new PersonStore(2);
+        int john = store.add("John");
+        int chinese = store.add("臭傻白万岁");
+        int nobody = store.add((String) null);
+
+        assertEquals(3, store.size());
+        assertEquals("John", store.getName(john));
+        assertEquals("臭傻白万岁", store.getName(chinese));
+        assertEquals(15, store.nameLength(chinese));
+        assertNull(store.getName(nobody));
+        assertEquals(-1, store.nameLength(nobody));
+    }
+
+    @Test
+    public void namesNeverStraddleSlabs() {
+        // 16 字节的 slab，每个 slab 只放得下一个 10 字节的名字
+        PersonStore store = new PersonStore(1, 4);
+        for (int i = 0; i < 10; i++) {
+            store.add("person-" + (100 + i));
+        }
+        for (int i = 0; i < 10; i++) {
+            assertEquals("person-" + (100 + i), store.getName(i));
+        }
+        assertEquals(160 + 16 * Long.BYTES + 16 * Integer.BYTES, store.offHeapBytes());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nameLargerThanSlab() {
+        new PersonStore(1, 4).add("a name longer than sixteen bytes");
+    }
+
+    @Test
+    public void viewWritesThrough() {
+        PersonStore store = new PersonStore();
+        int id = store.add("John");
+        Person view = store.view(id);
+
+        view.setName("ijj");
+
+        assertEquals("ijj", store.getName(id));
+        assertEquals("ijj", view.getName());
+    }
+
+    @Test
+    public void doSomethingOverRange() {
+        PersonStore store = new PersonStore();
+        for (int i = 0; i < 5; i++) {
+            store.add("p" + i);
+        }
+
+        store.doSomething(1, 4, new MockitoTest());
+
+        assertEquals("p0", store.getName(0));
+        assertEquals("mike", store.getName(1));
+        assertEquals("mike", store.getName(3));
+        assertEquals("p4", store.getName(4));
+    }
+
+    @Test
+    public void forEachReusesOneView() {
+        PersonStore store = new PersonStore();
+        store.add("a");
+        store.add("b");
+        List<Person> seen = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+
+        store.forEach(0, store.size(), p -> {
+            seen.add(p);
+            names.add(p.getName());
+        });
+
+        assertSame(seen.get(0), seen.get(1));
+        assertEquals("[a, b]", names.toString());
+    }
+
+    @Test
+    public void shorterNamesOverwriteInPlace() {
+        PersonStore store = new PersonStore();
+        for (int i = 0; i < 100; i++) {
+            store.add("person-" + i);
+        }
+        long written = store.nameBytes();
+
+        store.doSomething(0, store.size(), new MockitoTest());
+        store.doSomething(0, store.size(), new MockitoTest());
+
+        assertEquals(written, store.nameBytes());
+        assertEquals(400, store.liveNameBytes());
+        assertEquals("mike", store.getName(42));
+    }
+
+    @Test
+    public void repeatedRenamesAreCompacted() {
+        // 16 字节的 slab，改长名字会不停追加
+        PersonStore store = new PersonStore(4, 4);
+        for (int i = 0; i < 4; i++) {
+            store.add("p" + i);
+        }
+        for (int round = 0; round < 1000; round++) {
+            for (int i = 0; i < 4; i++) {
+                store.setName(i, (round % 2 == 0 ? "long-name-" : "ln-") + i + "-" + round % 10);
+            }
+        }
+        for (int i = 0; i < 4; i++) {
+            assertEquals("ln-" + i + "-9", store.getName(i));
+        }
+        // 不压缩的话要上千个 slab
+        assertTrue(store.offHeapBytes() + " bytes", store.offHeapBytes() < 64 * 16);
+    }
+
+    @Test
+    public void compactKeepsNames() {
+        PersonStore store = new PersonStore(1, 4);
+        store.add("a-long-name-1");
+        store.add((String) null);
+        store.add("");
+        store.add("b");
+        store.setName(0, "a-longer-name-1");
+        store.setName(3, "臭傻白");
+
+        store.compact();
+
+        assertEquals(store.liveNameBytes(), store.nameBytes() - 1);
+        assertEquals("a-longer-name-1", store.getName(0));
+        assertNull(store.getName(1));
+        assertEquals("", store.getName(2));
+        assertEquals("臭傻白", store.getName(3));
+    }
+
+    @Test
+    public void closeReleasesEverything() {
+        PersonStore store = new PersonStore();
+        store.add("a");
+        store.close();
+
+        assertEquals(0, store.size());
+        assertEquals(0, store.offHeapBytes());
+        try {
+            store.add("b");
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void outOfRange() {
+        PersonStore store = new PersonStore();
+        store.add("a");
+        store.forEach(0, 2, p -> {
+        });
+    }
+}
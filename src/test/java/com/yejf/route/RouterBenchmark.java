@@ -0,0 +1,84 @@
+package com.yejf.route;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用 config.json 全部规则测单次路由查询耗时，host 覆盖每条域名规则、每条 CIDR 和未命中的情况
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RouterBenchmark {
+
+    Router router;
+    String[] domains;
+    String[] ips;
+    String[] misses;
+    int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        RoutingConfig config;
+        try (InputStream in = RouterBenchmark.class.getResourceAsStream("/config.json")) {
+            config = RoutingConfig.parse(in);
+        }
+        // 基准里不做真实 DNS，未命中的域名解析为空
+        InetAddress[] none = new InetAddress[0];
+        router = Router.compile(config, host -> none);
+        List<String> domainHosts = new ArrayList<>();
+        List<String> ipHosts = new ArrayList<>();
+        for (RoutingRule rule : config.getRules()) {
+            if (rule.getDomain() != null) {
+                for (String domain : rule.getDomain()) {
+                    if (domain.startsWith("domain:")) {
+                        domainHosts.add("www." + domain.substring("domain:".length()));
+                    }
+                }
+            }
+            if (rule.getIp() != null) {
+                for (String ip : rule.getIp()) {
+                    if (!ip.startsWith("geoip:")) {
+                        ipHosts.add(ip.indexOf('/') < 0 ? ip : ip.substring(0, ip.indexOf('/')));
+                    }
+                }
+            }
+        }
+        domains = domainHosts.toArray(new String[0]);
+        ips = ipHosts.toArray(new String[0]);
+        misses = new String[]{"www.example.org", "cdn.unknown-site.net", "8.8.8.8", "a.b.c.d.e.f.example"};
+    }
+
+    @Benchmark
+    public String domainHit() {
+        return router.route(domains[next++ % domains.length]);
+    }
+
+    @Benchmark
+    public String ipHit() {
+        return router.route(ips[next++ % ips.length]);
+    }
+
+    @Benchmark
+    public String miss() {
+        return router.route(misses[next++ % misses.length]);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RouterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,132 @@
+package com.yejf.route;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.*;
+
+public class RouterTest {
+    private final Map<String, String> dns = new HashMap<>();
+    private final HostResolver resolver = host -> {
+        String ip = dns.get(host);
+        if (ip == null) {
+            throw new UnknownHostException(host);
+        }
+        return new InetAddress[]{InetAddress.getByName(ip)};
+    };
+
+    private Router bundled;
+
+    @Before
+    public void setUp() throws IOException {
+        try (InputStream in = getClass().getResourceAsStream("/config.json")) {
+            bundled = Router.compile(RoutingConfig.parse(in), resolver);
+        }
+    }
+
+    @Test
+    public void bundledConfig() {
+        assertEquals(DomainStrategy.IPIfNonMatch, bundled.getDomainStrategy());
+        assertEquals(7, bundled.getRuleCount());
+        assertTrue(bundled.getUnresolvedTags().contains("geosite:google"));
+        assertTrue(bundled.getUnresolvedTags().contains("geoip:cn"));
+    }
+
+    @Test
+    public void domainSuffix() {
+        assertEquals("proxy", bundled.route("pixiv.net"));
+        assertEquals("proxy", bundled.route("www.PIXIV.net."));
+        assertEquals("direct", bundled.route("kyfw.12306.com"));
+        // 只在 label 边界命中
+        assertEquals(-1, bundled.match("xpixiv.net", 0, null));
+    }
+
+    @Test
+    public void cidr() {
+        assertEquals("proxy", bundled.route("91.108.4.1"));
+        assertEquals("proxy", bundled.route("149.154.175.255"));
+        assertEquals(2, bundled.match("74.125.200.1", 443, null));
+        assertEquals(-1, bundled.match("91.108.24.1", 0, null));
+    }
+
+    @Test
+    public void inboundTag() {
+        assertEquals(0, bundled.match("pixiv.net", 0, "api"));
+        assertEquals("api", bundled.route("anything", 0, "api"));
+        assertEquals(1, bundled.match("pixiv.net", 0, "proxy"));
+    }
+
+    @Test
+    public void ipIfNonMatch() {
+        dns.put("telegram.example", "149.154.167.50");
+        dns.put("twitch.tv", "149.154.167.50");
+
+        assertEquals(2, bundled.match("telegram.example", 0, null));
+        // 域名规则已经命中就不再解析
+        assertEquals(1, bundled.match("twitch.tv", 0, null));
+        // 解析失败或者 IP 也不命中，走默认 outbound
+        assertEquals("proxy", bundled.route("unknown.example"));
+    }
+
+    @Test
+    public void routeAsyncWaitsForResolution() throws UnknownHostException {
+        CompletableFuture<InetAddress[]> pending = new CompletableFuture<>();
+        Router router = Router.compile(bundled.getConfig(), new HostResolver() {
+            @Override
+            public InetAddress[] resolve(String host) {
+                throw new IllegalStateException("should not block");
+            }
+
+            @Override
+            public CompletableFuture<InetAddress[]> resolveAsync(String host) {
+                return pending;
+            }
+        });
+
+        assertEquals("proxy", router.routeAsync("pixiv.net", 0, null).getNow(null));
+        assertEquals("proxy", router.routeAsync("91.108.4.1", 0, null).getNow(null));
+
+        CompletableFuture<String> route = router.routeAsync("telegram.example", 0, null);
+        assertFalse(route.isDone());
+        pending.complete(new InetAddress[]{InetAddress.getByName("149.154.167.50")});
+        assertEquals("proxy", route.join());
+    }
+
+    @Test
+    public void firstMatchWins() throws IOException {
+        Router router = compile("{\"outbounds\":[{\"tag\":\"a\"},{\"tag\":\"b\"}],"
+                + "\"routing\":{\"rules\":["
+                + "{\"outboundTag\":\"b\",\"domain\":[\"full:example.com\"]},"
+                + "{\"outboundTag\":\"a\",\"domain\":[\"domain:example.com\"]},"
+                + "{\"outboundTag\":\"b\",\"domain\":[\"keyword:shop\",\"regexp:^img[0-9]+\\\\.\"]},"
+                + "{\"outboundTag\":\"b\",\"ip\":[\"2001:db8::/32\"],\"port\":\"443,8000-9000\"}]}}");
+
+        assertEquals(DomainStrategy.AsIs, router.getDomainStrategy());
+        assertEquals(0, router.match("example.com", 0, null));
+        assertEquals(1, router.match("www.example.com", 0, null));
+        assertEquals(2, router.match("myshop.net", 0, null));
+        assertEquals(2, router.match("img12.cdn.net", 0, null));
+        assertEquals(3, router.match("[2001:db8::1]", 8080, null));
+        assertEquals(-1, router.match("2001:db8::1", 80, null));
+        assertEquals("a", router.route("nothing.org"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void badCidr() throws IOException {
+        compile("{\"routing\":{\"rules\":[{\"outboundTag\":\"a\",\"ip\":[\"1.2.3/8\"]}]}}");
+    }
+
+    private Router compile(String json) throws IOException {
+        return Router.compile(RoutingConfig.parse(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8))), resolver);
+    }
+}
@@ -0,0 +1,89 @@
+package com.yejf.route;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.*;
+
+public class RoutingConfigWatcherTest {
+    private static final String V1 = "{\"outbounds\":[{\"tag\":\"proxy\"},{\"tag\":\"direct\"}],"
+            + "\"routing\":{\"rules\":[{\"outboundTag\":\"direct\",\"domain\":[\"domain:a.com\"]}]}}";
+    private static final String V2 = "{\"outbounds\":[{\"tag\":\"proxy\"},{\"tag\":\"direct\"}],"
+            + "\"routing\":{\"rules\":[{\"outboundTag\":\"direct\",\"domain\":[\"domain:a.com\"]},"
+            + "{\"outboundTag\":\"direct\",\"domain\":[\"domain:b.com\"]}]}}";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path file;
+    private RouterHolder holder;
+    private RoutingConfigWatcher watcher;
+
+    @Before
+    public void setUp() throws IOException {
+        file = folder.getRoot().toPath().resolve("config.json");
+        write(V1);
+        try (InputStream in = Files.newInputStream(file)) {
+            holder = new RouterHolder(Router.compile(RoutingConfig.parse(in), HostResolver.SYSTEM), 0);
+        }
+        watcher = new RoutingConfigWatcher(file, holder, HostResolver.SYSTEM, null).start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        watcher.close();
+    }
+
+    @Test
+    public void reloadOnChange() throws Exception {
+        Router v1 = holder.get();
+        assertEquals("proxy", v1.route("b.com"));
+
+        write(V2);
+
+        await(() -> holder.version().getNumber() == 2);
+        assertEquals(2, holder.get().getRuleCount());
+        assertEquals("direct", holder.get().route("b.com"));
+        // 旧快照不受影响
+        assertEquals("proxy", v1.route("b.com"));
+    }
+
+    @Test
+    public void badFileKeepsPreviousVersion() throws Exception {
+        String[] badFiles = {
+                "{ not json",
+                "{\"outbounds\":[{\"tag\":\"proxy\"}],\"routing\":{\"rules\":[{\"outboundTag\":\"direct\",\"ip\":[\"1.2.3.999/8\"]}]}}",
+                "{\"outbounds\":[{\"tag\":\"proxy\"}],\"routing\":{\"rules\":[{\"outboundTag\":\"direct\"}]}}",
+        };
+        for (String bad : badFiles) {
+            int failed = watcher.getFailedReloads();
+            write(bad);
+            await(() -> watcher.getFailedReloads() > failed);
+        }
+
+        assertEquals(1, holder.version().getNumber());
+        assertEquals("direct", holder.get().route("a.com"));
+    }
+
+    private void write(String json) throws IOException {
+        Files.write(file, json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue("timed out", System.currentTimeMillis() < deadline);
+            Thread.sleep(20);
+        }
+    }
+}
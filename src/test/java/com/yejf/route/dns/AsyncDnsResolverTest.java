@@ -0,0 +1,168 @@
+package com.yejf.route.dns;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.*;
+
+public class AsyncDnsResolverTest {
+    private final List<String> queries = new ArrayList<>();
+    private final List<CompletableFuture<DnsAnswer>> answers = new ArrayList<>();
+    private long now = 1_000_000;
+    private AsyncDnsResolver resolver;
+
+    @Before
+    public void setUp() {
+        // 本地假上游：记录查询，由测试手动给出结果
+        DnsUpstream upstream = host -> {
+            CompletableFuture<DnsAnswer> answer = new CompletableFuture<>();
+            queries.add(host);
+            answers.add(answer);
+            return answer;
+        };
+        resolver = new AsyncDnsResolver(upstream, 5_000, 100, () -> now);
+    }
+
+    @Test
+    public void concurrentLookupsShareOneQuery() throws Exception {
+        CompletableFuture<InetAddress[]> first = resolver.resolveAsync("example.com");
+        CompletableFuture<InetAddress[]> second = resolver.resolveAsync("EXAMPLE.com");
+        assertFalse(first.isDone());
+        assertSame(first, second);
+        assertEquals(1, queries.size());
+
+        answer(0, 10_000, "1.2.3.4");
+
+        assertEquals("1.2.3.4", first.get()[0].getHostAddress());
+        assertEquals(1, resolver.size());
+    }
+
+    @Test
+    public void respectsTtl() throws Exception {
+        resolver.resolveAsync("example.com");
+        answer(0, 10_000, "1.2.3.4");
+
+        now += 9_999;
+        assertTrue(resolver.resolveAsync("example.com").isDone());
+        assertEquals(1, queries.size());
+
+        now += 1;
+        CompletableFuture<InetAddress[]> expired = resolver.resolveAsync("example.com");
+        assertFalse(expired.isDone());
+        assertEquals(2, queries.size());
+        assertEquals(1, resolver.getHits());
+        assertEquals(2, resolver.getMisses());
+    }
+
+    @Test
+    public void ttlIsClamped() {
+        resolver.resolveAsync("example.com");
+        answer(0, 0, "1.2.3.4");
+
+        now += AsyncDnsResolver.MIN_TTL_MILLIS - 1;
+        assertTrue(resolver.resolveAsync("example.com").isDone());
+        assertEquals(1, queries.size());
+    }
+
+    @Test
+    public void negativeAnswersAreCached() {
+        CompletableFuture<InetAddress[]> missing = resolver.resolveAsync("missing.example");
+        answers.get(0).complete(DnsAnswer.negative(3_000));
+        assertEquals(0, missing.join().length);
+
+        now += 2_000;
+        try {
+            resolver.resolve("missing.example");
+            fail();
+        } catch (UnknownHostException e) {
+            assertEquals(1, queries.size());
+        }
+
+        now += 1_000;
+        resolver.resolveAsync("missing.example");
+        assertEquals(2, queries.size());
+    }
+
+    @Test
+    public void upstreamFailureIsNegative() {
+        CompletableFuture<InetAddress[]> failed = resolver.resolveAsync("broken.example");
+        answers.get(0).completeExceptionally(new IllegalStateException("timeout"));
+
+        assertEquals(0, failed.join().length);
+        now += 4_999;
+        resolver.resolveAsync("broken.example");
+        assertEquals(1, queries.size());
+        now += 1;
+        resolver.resolveAsync("broken.example");
+        assertEquals(2, queries.size());
+    }
+
+    @Test
+    public void popularNamesArePrefetched() throws Exception {
+        resolver.resolveAsync("popular.example");
+        answer(0, 10_000, "1.1.1.1");
+        resolver.resolveAsync("rare.example");
+        answer(1, 10_000, "2.2.2.2");
+
+        // 还没进入最后 10% 的 TTL，不预取
+        now += 8_000;
+        for (int i = 0; i < AsyncDnsResolver.PREFETCH_MIN_HITS; i++) {
+            resolver.resolveAsync("popular.example");
+        }
+        assertEquals(2, queries.size());
+
+        now += 1_500;
+        CompletableFuture<InetAddress[]> stale = resolver.resolveAsync("popular.example");
+        resolver.resolveAsync("rare.example");
+        // 预取期间继续返回旧结果，只发出一个请求
+        assertEquals("1.1.1.1", stale.get()[0].getHostAddress());
+        resolver.resolveAsync("popular.example");
+        assertEquals(3, queries.size());
+        assertEquals("popular.example", queries.get(2));
+        assertEquals(1, resolver.getPrefetches());
+
+        answer(2, 10_000, "3.3.3.3");
+        now += 1_000;
+        assertEquals("3.3.3.3", resolver.resolveAsync("popular.example").get()[0].getHostAddress());
+        assertEquals(3, queries.size());
+    }
+
+    @Test
+    public void sizeIsBounded() {
+        for (int i = 0; i < 150; i++) {
+            resolver.resolveAsync("host" + i + ".example");
+            answer(i, 10_000, "10.0.0." + (i % 250));
+        }
+        assertTrue(resolver.size() <= 100);
+    }
+
+    @Test
+    public void hotNamesSurviveEviction() {
+        resolver.resolveAsync("hot.example");
+        answer(0, 60_000, "1.1.1.1");
+        // 热门域名夹在大量只查一次的域名之间不断被访问
+        for (int i = 1; i <= 300; i++) {
+            resolver.resolveAsync("cold" + i + ".example");
+            answer(i, 60_000, "10.0.0." + (i % 250));
+            resolver.resolveAsync("hot.example");
+        }
+
+        assertTrue(resolver.resolveAsync("hot.example").isDone());
+        assertEquals(301, queries.size());
+        assertTrue(resolver.size() <= 100);
+    }
+
+    private void answer(int query, long ttlMillis, String ip) {
+        try {
+            answers.get(query).complete(new DnsAnswer(new InetAddress[]{InetAddress.getByName(ip)}, ttlMillis));
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.yejf.route.geo;
+
+import com.yejf.route.HostResolver;
+import com.yejf.route.IpAddresses;
+import com.yejf.route.Router;
+import com.yejf.route.RoutingConfig;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class GeoDataTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private GeoData geo;
+
+    @Before
+    public void setUp() throws IOException {
+        Path source = folder.newFolder("source").toPath();
+        write(source.resolve("geosite/google"),
+                "# Google",
+                "google.com",
+                "domain:youtube.com @ads",
+                "full:www.gstatic.com",
+                "keyword:googleapis",
+                "regexp:^gvt[0-9]\\.com$",
+                "include:google-ads");
+        write(source.resolve("geosite/google-ads"), "doubleclick.net");
+        List<String> many = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            many.add("site" + i + ".cn");
+        }
+        write(source.resolve("geosite/cn.txt"), many.toArray(new String[0]));
+        write(source.resolve("geoip/cn.txt"),
+                "1.0.1.0/24",
+                "1.0.2.0/23",
+                "36.0.0.0/8",
+                "36.1.0.0/16",
+                "240e::/20");
+
+        Path dat = folder.getRoot().toPath().resolve("geo.dat");
+        new GeoDataCompiler(source).compile(dat);
+        geo = GeoData.open(dat);
+    }
+
+    @Test
+    public void site() {
+        GeoSite google = geo.site("GOOGLE");
+        assertEquals(6, google.size());
+        assertTrue(google.matches("google.com"));
+        assertTrue(google.matches("mail.google.com"));
+        assertTrue(google.matches("m.youtube.com"));
+        assertTrue(google.matches("ad.doubleclick.net"));
+        assertTrue(google.matches("www.gstatic.com"));
+        assertFalse(google.matches("a.www.gstatic.com"));
+        assertTrue(google.matches("fonts.googleapis.cn"));
+        assertTrue(google.matches("gvt1.com"));
+        assertFalse(google.matches("notgoogle.com"));
+        assertFalse(google.matches("com"));
+        assertNull(geo.site("missing"));
+    }
+
+    @Test
+    public void prefixCompressedBlocks() {
+        GeoSite cn = geo.site("cn");
+        assertEquals(1000, cn.size());
+        for (int i = 0; i < 1000; i++) {
+            assertTrue("site" + i, cn.matches("www.site" + i + ".cn"));
+        }
+        assertFalse(cn.matches("site1000.cn"));
+        assertFalse(cn.matches("site.cn"));
+        assertFalse(cn.matches("aaa.cn"));
+        assertFalse(cn.matches("zzz.cn"));
+    }
+
+    @Test
+    public void queryIsSharedAcrossSites() {
+        GeoSite google = geo.site("google");
+        GeoSite cn = geo.site("cn");
+        GeoSite.Query query = new GeoSite.Query("www.site7.cn");
+        assertFalse(google.matches(query));
+        assertTrue(cn.matches(query));
+        // 前一次查找还原出的 key 不影响下一次
+        assertTrue(google.matches(new GeoSite.Query("mail.google.com")));
+        assertFalse(cn.matches(new GeoSite.Query("例子.cn")));
+        StringBuilder tooLong = new StringBuilder("google.com");
+        while (tooLong.length() <= 255) {
+            tooLong.insert(0, "a.");
+        }
+        assertFalse(cn.matches(new GeoSite.Query(tooLong.toString())));
+    }
+
+    @Test
+    public void ip() {
+        GeoIp cn = geo.ip("cn");
+        // 1.0.1.0/24 和 1.0.2.0/23 相邻合并，36.1.0.0/16 被 36.0.0.0/8 包含
+        assertEquals(3, cn.size());
+        assertTrue(cn.contains(IpAddresses.parse("1.0.1.0")));
+        assertTrue(cn.contains(IpAddresses.parse("1.0.3.255")));
+        assertFalse(cn.contains(IpAddresses.parse("1.0.4.0")));
+        assertTrue(cn.contains(IpAddresses.parse("36.255.255.255")));
+        assertFalse(cn.contains(IpAddresses.parse("200.1.1.1")));
+        assertTrue(cn.contains(IpAddresses.parse("240e:1::1")));
+        assertFalse(cn.contains(IpAddresses.parse("2400::1")));
+    }
+
+    @Test
+    public void bundledConfigResolvesTags() throws IOException {
+        Router router;
+        try (InputStream in = getClass().getResourceAsStream("/config.json")) {
+            router = Router.compile(RoutingConfig.parse(in), HostResolver.SYSTEM, geo);
+        }
+        assertFalse(router.getUnresolvedTags().contains("geosite:google"));
+        assertFalse(router.getUnresolvedTags().contains("geoip:cn"));
+        assertTrue(router.getUnresolvedTags().contains("geosite:github"));
+        assertEquals("proxy", router.route("www.google.com"));
+        assertEquals("direct", router.route("36.1.2.3"));
+        assertEquals("direct", router.route("www.site42.cn"));
+    }
+
+    private static void write(Path file, String... lines) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+    }
+}
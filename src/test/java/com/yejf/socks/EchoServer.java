@@ -0,0 +1,85 @@
+package com.yejf.socks;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+/**
+ * 测试用的 TCP + UDP echo 服务，TCP 监听所有地址，UDP 只监听 127.0.0.1
+ */
+class EchoServer implements Closeable {
+    private final ServerSocket tcp;
+    private final DatagramSocket udp;
+
+    EchoServer() throws IOException {
+        tcp = new ServerSocket(0);
+        udp = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+        daemon(this::acceptLoop);
+        daemon(this::udpLoop);
+    }
+
+    int tcpPort() {
+        return tcp.getLocalPort();
+    }
+
+    int udpPort() {
+        return udp.getLocalPort();
+    }
+
+    private void acceptLoop() {
+        try {
+            while (true) {
+                Socket socket = tcp.accept();
+                daemon(() -> echo(socket));
+            }
+        } catch (IOException e) {
+            // 关闭
+        }
+    }
+
+    private static void echo(Socket socket) {
+        try (Socket s = socket) {
+            s.setTcpNoDelay(true);
+            InputStream in = s.getInputStream();
+            OutputStream out = s.getOutputStream();
+            byte[] buffer = new byte[64 * 1024];
+            int n;
+            while ((n = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, n);
+            }
+        } catch (IOException e) {
+            // 对端断开
+        }
+    }
+
+    private void udpLoop() {
+        byte[] buffer = new byte[64 * 1024];
+        try {
+            while (true) {
+                DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                udp.receive(packet);
+                udp.send(packet);
+            }
+        } catch (IOException e) {
+            // 关闭
+        }
+    }
+
+    private static void daemon(Runnable task) {
+        Thread thread = new Thread(task, "echo");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void close() throws IOException {
+        tcp.close();
+        udp.close();
+    }
+}
@@ -0,0 +1,89 @@
+package com.yejf.socks;
+
+import com.yejf.route.HostResolver;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 经 loopback 测 SOCKS5 inbound：每秒新建连接数（握手 + CONNECT 到本地 echo），
+ * 以及单连接转发吞吐（每次操作往返 {@link Relay#CHUNK} 字节，MB/s = ops/s × CHUNK × 2 / 2^20）
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class Socks5Benchmark {
+
+    @State(Scope.Benchmark)
+    public static class Servers {
+        EchoServer echo;
+        Socks5Server server;
+
+        @Setup
+        public void setUp() throws IOException {
+            echo = new EchoServer();
+            server = new Socks5Server(new InetSocketAddress("127.0.0.1", 0), "socks-in", true,
+                    Socks5ServerTest.holder(), HostResolver.SYSTEM).start();
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            server.close();
+            echo.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Relay {
+        static final int CHUNK = 32 * 1024;
+
+        Socket socket;
+        OutputStream out;
+        DataInputStream in;
+        byte[] chunk = new byte[CHUNK];
+
+        @Setup
+        public void setUp(Servers servers) throws IOException {
+            socket = Socks5ServerTest.connect(servers.server.getAddress(), Socks5ServerTest.ipv4Request(servers.echo.tcpPort()));
+            out = socket.getOutputStream();
+            in = new DataInputStream(socket.getInputStream());
+            Socks5ServerTest.readN(in, 10);
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            socket.close();
+        }
+    }
+
+    @Benchmark
+    public byte[] connect(Servers servers) throws IOException {
+        try (Socket socket = Socks5ServerTest.connect(servers.server.getAddress(),
+                Socks5ServerTest.ipv4Request(servers.echo.tcpPort()))) {
+            return Socks5ServerTest.readN(new DataInputStream(socket.getInputStream()), 10);
+        }
+    }
+
+    @Benchmark
+    public byte[] relay(Relay relay) throws IOException {
+        relay.out.write(relay.chunk);
+        relay.in.readFully(relay.chunk);
+        return relay.chunk;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(Socks5Benchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,224 @@
+package com.yejf.socks;
+
+import com.yejf.route.HostResolver;
+import com.yejf.route.Router;
+import com.yejf.route.RouterHolder;
+import com.yejf.route.RoutingConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class Socks5ServerTest {
+    static final String CONFIG = "{"
+            + "\"inbounds\":[{\"tag\":\"socks-in\",\"protocol\":\"socks\",\"listen\":\"127.0.0.1\",\"port\":0,\"settings\":{\"udp\":true}}],"
+            + "\"outbounds\":[{\"tag\":\"direct\",\"protocol\":\"freedom\"},{\"tag\":\"proxy\",\"protocol\":\"vmess\"},"
+            + "{\"tag\":\"block\",\"protocol\":\"blackhole\",\"settings\":{\"response\":{\"type\":\"http\"}}}],"
+            + "\"routing\":{\"rules\":["
+            + "{\"outboundTag\":\"block\",\"domain\":[\"domain:blocked.test\"]},"
+            + "{\"outboundTag\":\"proxy\",\"domain\":[\"domain:proxied.test\"]}]}}";
+
+    private EchoServer echo;
+    private Socks5Server server;
+
+    @Before
+    public void setUp() throws IOException {
+        echo = new EchoServer();
+        server = new Socks5Server(new InetSocketAddress("127.0.0.1", 0), "socks-in", true, holder(), HostResolver.SYSTEM).start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+        echo.close();
+    }
+
+    static RouterHolder holder() throws IOException {
+        RoutingConfig config = RoutingConfig.parse(new ByteArrayInputStream(CONFIG.getBytes(StandardCharsets.UTF_8)));
+        return new RouterHolder(Router.compile(config, HostResolver.SYSTEM), 0);
+    }
+
+    @Test
+    public void connectDirect() throws IOException {
+        try (Socket socket = connect(server.getAddress(), ipv4Request(echo.tcpPort()))) {
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            assertArrayEquals(new byte[]{5, 0, 0, 1}, readN(in, 4));
+            readN(in, 6);
+
+            byte[] payload = new byte[256 * 1024];
+            new Random(1).nextBytes(payload);
+            OutputStream out = socket.getOutputStream();
+            Thread writer = new Thread(() -> {
+                try {
+                    out.write(payload);
+                    socket.shutdownOutput();
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            writer.start();
+            assertArrayEquals(payload, readN(in, payload.length));
+            // 客户端半关闭后，echo 端也关闭，服务端把 EOF 传回来
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    public void earlyDataIsForwardedAfterConnect() throws IOException {
+        ByteArrayOutputStream pipelined = new ByteArrayOutputStream();
+        pipelined.write(new byte[]{5, 1, 0});
+        pipelined.write(new byte[]{5, 1, 0});
+        pipelined.write(ipv4Request(echo.tcpPort()));
+        pipelined.write("hello".getBytes(StandardCharsets.US_ASCII));
+        try (Socket socket = new Socket()) {
+            socket.connect(server.getAddress(), 5000);
+            socket.setSoTimeout(5000);
+            socket.getOutputStream().write(pipelined.toByteArray());
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            assertArrayEquals(new byte[]{5, 0}, readN(in, 2));
+            assertEquals(0, readN(in, 10)[1]);
+            assertEquals("hello", new String(readN(in, 5), StandardCharsets.US_ASCII));
+        }
+    }
+
+    @Test
+    public void blackholeRepliesHttp403() throws IOException {
+        try (Socket socket = connect(server.getAddress(), domainRequest("ads.blocked.test", 80))) {
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            assertEquals(0, readN(in, 10)[1]);
+            String rest = new String(readAll(in), StandardCharsets.US_ASCII);
+            assertTrue(rest, rest.startsWith("HTTP/1.1 403 Forbidden"));
+        }
+    }
+
+    @Test
+    public void unsupportedOutboundFails() throws IOException {
+        try (Socket socket = connect(server.getAddress(), domainRequest("www.proxied.test", 443))) {
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            assertEquals(1, readN(in, 10)[1]);
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    public void noAcceptableMethod() throws IOException {
+        try (Socket socket = new Socket()) {
+            socket.connect(server.getAddress(), 5000);
+            socket.setSoTimeout(5000);
+            socket.getOutputStream().write(new byte[]{5, 1, 2});
+            InputStream in = socket.getInputStream();
+            assertArrayEquals(new byte[]{5, (byte) 0xFF}, readN(new DataInputStream(in), 2));
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    public void udpAssociate() throws IOException {
+        byte[] request = new byte[]{3, 0, 1, 0, 0, 0, 0, 0, 0};
+        try (Socket control = connect(server.getAddress(), request, 3);
+             DatagramSocket udp = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+            DataInputStream in = new DataInputStream(control.getInputStream());
+            byte[] reply = readN(in, 10);
+            assertEquals(0, reply[1]);
+            int relayPort = (reply[8] & 0xff) << 8 | reply[9] & 0xff;
+
+            ByteBuffer packet = ByteBuffer.allocate(64);
+            packet.put(new byte[]{0, 0, 0, 1, 127, 0, 0, 1}).putShort((short) echo.udpPort());
+            packet.put("ping".getBytes(StandardCharsets.US_ASCII));
+            udp.setSoTimeout(5000);
+            udp.send(new DatagramPacket(packet.array(), packet.position(),
+                    new InetSocketAddress(InetAddress.getLoopbackAddress(), relayPort)));
+
+            DatagramPacket response = new DatagramPacket(new byte[64], 64);
+            udp.receive(response);
+            byte[] data = Arrays.copyOf(response.getData(), response.getLength());
+            assertArrayEquals(new byte[]{0, 0, 0, 1, 127, 0, 0, 1}, Arrays.copyOf(data, 8));
+            assertEquals(echo.udpPort(), (data[8] & 0xff) << 8 | data[9] & 0xff);
+            assertEquals("ping", new String(data, 10, data.length - 10, StandardCharsets.US_ASCII));
+        }
+    }
+
+    @Test
+    public void stalledAndIdleConnectionsAreClosed() throws IOException {
+        try (Socks5Server timed = new Socks5Server(new InetSocketAddress("127.0.0.1", 0), "socks-in", true,
+                holder(), HostResolver.SYSTEM, 200, 200).start()) {
+            // 只发半个 greeting 就不动了
+            try (Socket socket = new Socket()) {
+                socket.connect(timed.getAddress(), 5000);
+                socket.setSoTimeout(5000);
+                socket.getOutputStream().write(new byte[]{5});
+                assertEquals(-1, socket.getInputStream().read());
+            }
+            // 转发建立后两边都不发数据
+            try (Socket socket = connect(timed.getAddress(), ipv4Request(echo.tcpPort()))) {
+                DataInputStream in = new DataInputStream(socket.getInputStream());
+                assertEquals(0, readN(in, 10)[1]);
+                assertEquals(-1, in.read());
+            }
+        }
+    }
+
+    static byte[] ipv4Request(int port) {
+        return new byte[]{1, 127, 0, 0, 1, (byte) (port >>> 8), (byte) port};
+    }
+
+    static byte[] domainRequest(String host, int port) {
+        byte[] name = host.getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer buffer = ByteBuffer.allocate(4 + name.length);
+        buffer.put((byte) 3).put((byte) name.length).put(name).putShort((short) port);
+        return buffer.array();
+    }
+
+    /**
+     * 完成握手并发出 CONNECT 请求，address 为 ATYP DST.ADDR DST.PORT
+     */
+    static Socket connect(InetSocketAddress proxy, byte[] address) throws IOException {
+        return connect(proxy, address, 1);
+    }
+
+    private static Socket connect(InetSocketAddress proxy, byte[] address, int command) throws IOException {
+        Socket socket = new Socket();
+        socket.connect(proxy, 5000);
+        socket.setSoTimeout(5000);
+        socket.setTcpNoDelay(true);
+        OutputStream out = socket.getOutputStream();
+        out.write(new byte[]{5, 1, 0});
+        assertArrayEquals(new byte[]{5, 0}, readN(new DataInputStream(socket.getInputStream()), 2));
+        out.write(new byte[]{5, (byte) command, 0});
+        out.write(address);
+        return socket;
+    }
+
+    static byte[] readN(DataInputStream in, int n) throws IOException {
+        byte[] bytes = new byte[n];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int n;
+        while ((n = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,110 @@
+package com.yejf.startup;
+
+import com.yejf.ClientApplication;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 从启动新 JVM 到第一个 /sayHi 返回 200 的时间，每次调用都是一个新进程。
+ * <ul>
+ * <li>default：跟生产一样不带 devtools 重启（打包后的 jar 不含 devtools）</li>
+ * <li>lazy：startup.lazy=true</li>
+ * <li>noindex：忽略 META-INF/spring.components，退回 classpath 扫描</li>
+ * <li>devtools：打开 devtools 重启，IDE 里直接跑 main 的情况</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StartupBenchmark {
+    private static final long TIMEOUT_MILLIS = 60_000;
+
+    @Param({"default", "lazy", "noindex", "devtools"})
+    public String mode;
+
+    private Process process;
+
+    @Benchmark
+    public int firstResponse() throws Exception {
+        int port = freePort();
+        process = launch(port);
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        URL url = new URL("http://127.0.0.1:" + port + "/sayHi?name=bench");
+        while (System.currentTimeMillis() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("application exited with " + process.exitValue());
+            }
+            try {
+                HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+                connection.setConnectTimeout(100);
+                connection.setReadTimeout(5_000);
+                if (connection.getResponseCode() == 200) {
+                    try (InputStream in = connection.getInputStream()) {
+                        return in.read();
+                    }
+                }
+            } catch (IOException e) {
+                // 还没监听
+            }
+            Thread.sleep(5);
+        }
+        throw new IllegalStateException("no response from /sayHi within " + TIMEOUT_MILLIS + " ms");
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() throws InterruptedException {
+        if (process != null) {
+            process.destroy();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+            process = null;
+        }
+    }
+
+    private Process launch(int port) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.add("-Dspring.devtools.restart.enabled=" + mode.equals("devtools"));
+        if (mode.equals("noindex")) {
+            command.add("-Dspring.index.ignore=true");
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ClientApplication.class.getName());
+        command.add("--server.port=" + port);
+        command.add("--startup.lazy=" + mode.equals("lazy"));
+        command.add("--logging.level.root=WARN");
+        return new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(new File("target/startup-benchmark.log")))
+                .start();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(StartupBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
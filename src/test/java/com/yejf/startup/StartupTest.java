@@ -0,0 +1,102 @@
+package com.yejf.startup;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class StartupTest {
+    private static final Set<String> created = Collections.synchronizedSet(new HashSet<>());
+
+    private ConfigurableApplicationContext context;
+
+    @Before
+    public void setUp() {
+        created.clear();
+    }
+
+    @After
+    public void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Test
+    public void reportsBeansAndConfigurations() {
+        context = run("--startup.profile=true");
+        StartupReport report = context.getBean(StartupReport.class);
+
+        StartupReport.Bean slow = report.getBean("slow");
+        StartupReport.Bean parent = report.getBean("parent");
+        assertTrue(slow.getSelfNanos() >= TimeUnit.MILLISECONDS.toNanos(50));
+        // parent 先创建，创建依赖 slow 的时间只算进 parent 的 total
+        assertEquals(slow.getTotalNanos(), parent.getTotalNanos() - parent.getSelfNanos());
+
+        String owner = slow.getOwner();
+        assertEquals(owner, parent.getOwner());
+        assertTrue(report.getOwners().get(owner) >= slow.getSelfNanos() + parent.getSelfNanos());
+        assertTrue(report.getPhases().containsKey("context refresh"));
+        assertTrue(report.format(5).contains("slow"));
+    }
+
+    @Test
+    public void profilingIsOffByDefault() {
+        context = run();
+        assertFalse(context.containsBean("startupReport"));
+        assertTrue(created.contains("slow"));
+    }
+
+    @Test
+    public void lazyModeDefersNonEagerBeans() {
+        context = run("--startup.lazy=true", "--startup.eager-beans=eager, other");
+        assertEquals(Collections.singleton("eager"), created);
+
+        context.getBean("parent");
+        assertTrue(created.contains("slow"));
+    }
+
+    private static ConfigurableApplicationContext run(String... args) {
+        SpringApplication application = new SpringApplication(Beans.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+        // 没有 @Component 的 source 不会被注册，手动加进去
+        application.addInitializers(context -> ((AnnotationConfigApplicationContext) context).register(Beans.class));
+        return application.run(args);
+    }
+
+    /**
+     * 不加 @Configuration，避免被主程序的组件扫描和索引带进去
+     */
+    static class Beans {
+
+        @Bean
+        public StringBuilder parent(String slow) {
+            created.add("parent");
+            return new StringBuilder(slow);
+        }
+
+        @Bean
+        public String slow() throws InterruptedException {
+            created.add("slow");
+            Thread.sleep(60);
+            return "slow";
+        }
+
+        @Bean
+        public Object eager() {
+            created.add("eager");
+            return new Object();
+        }
+    }
+}